@@ -1,30 +1,27 @@
-import java.io.File;
-import java.io.FileNotFoundException;
+import common.Line;
+import common.MappedInput;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Scanner;
 
 public class codingClubFeb3_1 {
     public static void main(String[] args)
     {
         try
         {
-            Scanner sc = new Scanner(new File("realFeb3.txt"));
-            ArrayList<String> calories = new  ArrayList<>();
             ArrayList<Long> calTotals =  new ArrayList<>();
-            while(sc.hasNextLine())
-            {
-                calories.add(sc.nextLine());
-            }
             long sum = 0;
-            for(String s : calories)
+            for(Line s : MappedInput.open(Path.of("realFeb3.txt")))
             {
-                if(s.equals(""))
+                if(s.length() == 0)
                 {
                     calTotals.add(sum);
                     sum = 0;
                     continue;
                 }
-                sum += Long.parseLong(s);
+                sum += s.parseLong();
             }
             long max = calTotals.get(0);
             for(int i = 1; i < calTotals.size(); i++)
@@ -35,9 +32,12 @@ public class codingClubFeb3_1 {
                 }
             }
             System.out.println(max);
-        }catch(FileNotFoundException e)
+        }catch(NoSuchFileException e)
         {
             System.out.println("File not found");
+        }catch(IOException e)
+        {
+            e.printStackTrace();
         }
     }
 }
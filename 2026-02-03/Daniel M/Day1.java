@@ -1,8 +1,11 @@
 package _2022.day01;
 
-import java.io.BufferedReader;
+import common.Line;
+import common.LineSource;
+import common.ResultCache;
+
 import java.io.IOException;
-import java.io.FileReader;
+import java.nio.file.Path;
 import java.util.ArrayList;
 
 public class Day1
@@ -10,16 +13,31 @@ public class Day1
 	private static ArrayList<ArrayList<Integer>> calCount = new ArrayList<ArrayList<Integer>>();
 	private static int max = 0;
 
+	private static final Path INPUT = Path.of("./src/main/java/_2022/day01/input.txt");
+
 	public static void main(String[] args)
 	{
+		try
+		{
+			String answer = ResultCache.shared().get(INPUT, ResultCache.fingerprint(Day1.class), Day1::solve);
+			System.out.println("The answer is " + answer);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	public static String solve(Path input) throws IOException
+	{
+		calCount.clear();
 		ArrayList<Integer> currentGroup = new ArrayList<>();
 
-		try (BufferedReader br = new BufferedReader(new FileReader("./src/main/java/_2022/day01/input.txt")))
+		try (LineSource lines = LineSource.open(input))
 		{
-			String line;
-			while ((line = br.readLine()) != null)
+			for (Line line : lines)
 			{
-				if (line.trim().isEmpty())
+				if (line.isBlank())
 				{
 					if (!currentGroup.isEmpty())
 					{
@@ -29,19 +47,14 @@ public class Day1
 				}
 				else
 				{
-					currentGroup.add(Integer.parseInt(line.trim()));
+					currentGroup.add(line.parseInt());
 				}
 			}
-
-			if (!currentGroup.isEmpty())
-			{
-				calCount.add(currentGroup);
-			}
-
 		}
-		catch (IOException e)
+
+		if (!currentGroup.isEmpty())
 		{
-			e.printStackTrace();
+			calCount.add(currentGroup);
 		}
 
 		ArrayList<Integer> sums = new ArrayList<Integer>();
@@ -68,6 +81,6 @@ public class Day1
 			}
 		}
 
-		System.out.println("The answer is " + max);
+		return String.valueOf(max);
 	}
 }
@@ -1,8 +1,11 @@
 package _2022.day01;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import common.Line;
+import common.LineSource;
+import common.ResultCache;
+
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 
@@ -10,16 +13,31 @@ public class Day1Part2
 {
 	private static ArrayList<ArrayList<Integer>> calCount = new ArrayList<ArrayList<Integer>>();
 
+	private static final Path INPUT = Path.of("./src/main/java/_2022/day01/input.txt");
+
 	public static void main(String[] args)
 	{
+		try
+		{
+			String answer = ResultCache.shared().get(INPUT, ResultCache.fingerprint(Day1Part2.class), Day1Part2::solve);
+			System.out.println("The answer is " + answer);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	public static String solve(Path input) throws IOException
+	{
+		calCount.clear();
 		ArrayList<Integer> currentGroup = new ArrayList<>();
 
-		try (BufferedReader br = new BufferedReader(new FileReader("./src/main/java/_2022/day01/input.txt")))
+		try (LineSource lines = LineSource.open(input))
 		{
-			String line;
-			while ((line = br.readLine()) != null)
+			for (Line line : lines)
 			{
-				if (line.trim().isEmpty())
+				if (line.isBlank())
 				{
 					if (!currentGroup.isEmpty())
 					{
@@ -29,19 +47,14 @@ public class Day1Part2
 				}
 				else
 				{
-					currentGroup.add(Integer.parseInt(line.trim()));
+					currentGroup.add(line.parseInt());
 				}
 			}
-
-			if (!currentGroup.isEmpty())
-			{
-				calCount.add(currentGroup);
-			}
-
 		}
-		catch (IOException e)
+
+		if (!currentGroup.isEmpty())
 		{
-			e.printStackTrace();
+			calCount.add(currentGroup);
 		}
 
 		ArrayList<Integer> sums = new ArrayList<Integer>();
@@ -74,6 +87,6 @@ public class Day1Part2
 			sum += top3.get(i);
 		}
 
-		System.out.println("The answer is " + sum);
+		return String.valueOf(sum);
 	}
 }
@@ -0,0 +1,234 @@
+package _2022.day01;
+
+import common.LatencyHistogram;
+import common.Line;
+import common.LineSource;
+import common.MappedInput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Distribution of the group sums ("calories per elf") of a day 1 input, in fixed memory however
+ * many groups there are: exact count, total, min and max, plus a {@link QuantileSketch} for
+ * p50/p99 and friends, a log-bucketed {@link LatencyHistogram} and a {@link HyperLogLog} count of
+ * distinct sums.
+ *
+ * <p>Plain files are read as a parallel stream of blank-line-separated groups; each worker fills
+ * its own sketches and they are merged at the end. Sketches can be saved with {@link #write} and
+ * merged with ones from other runs after {@link #read}.
+ *
+ * <pre>
+ * java _2022.day01.GroupSumSketches [input] [save.sketch]
+ * </pre>
+ */
+public class GroupSumSketches
+{
+	private static final Path INPUT = Path.of("./src/main/java/_2022/day01/input.txt");
+	private static final int MAGIC = 0x47535331; // "GSS1"
+
+	private long count;
+	private long total;
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+	private final QuantileSketch quantiles;
+	private final LatencyHistogram histogram;
+	private final HyperLogLog distinct;
+
+	public GroupSumSketches()
+	{
+		this(new QuantileSketch(), new LatencyHistogram(), new HyperLogLog());
+	}
+
+	private GroupSumSketches(QuantileSketch quantiles, LatencyHistogram histogram, HyperLogLog distinct)
+	{
+		this.quantiles = quantiles;
+		this.histogram = histogram;
+		this.distinct = distinct;
+	}
+
+	public static GroupSumSketches of(Path input) throws IOException
+	{
+		try (LineSource lines = LineSource.open(input))
+		{
+			if (lines instanceof MappedInput)
+			{
+				return ((MappedInput) lines).blocks().parallel().collect(GroupSumSketches::new, (sketches, group) -> sketches.add(group.lines().mapToLong(Line::parseLong).sum()), GroupSumSketches::merge);
+			}
+
+			GroupSumSketches sketches = new GroupSumSketches();
+			long sum = 0;
+			boolean inGroup = false;
+			for (Line line : lines)
+			{
+				if (line.isBlank())
+				{
+					if (inGroup)
+					{
+						sketches.add(sum);
+					}
+					sum = 0;
+					inGroup = false;
+				}
+				else
+				{
+					sum += line.parseLong();
+					inGroup = true;
+				}
+			}
+			if (inGroup)
+			{
+				sketches.add(sum);
+			}
+			return sketches;
+		}
+	}
+
+	public void add(long groupSum)
+	{
+		count++;
+		total += groupSum;
+		min = Math.min(min, groupSum);
+		max = Math.max(max, groupSum);
+		quantiles.add(groupSum);
+		histogram.record(groupSum);
+		distinct.add(groupSum);
+	}
+
+	public void merge(GroupSumSketches other)
+	{
+		count += other.count;
+		total += other.total;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		quantiles.merge(other.quantiles);
+		histogram.merge(other.histogram);
+		distinct.merge(other.distinct);
+	}
+
+	public long count()
+	{
+		return count;
+	}
+
+	public long total()
+	{
+		return total;
+	}
+
+	public long min()
+	{
+		return min;
+	}
+
+	public long max()
+	{
+		return max;
+	}
+
+	public QuantileSketch quantiles()
+	{
+		return quantiles;
+	}
+
+	public LatencyHistogram histogram()
+	{
+		return histogram;
+	}
+
+	public HyperLogLog distinct()
+	{
+		return distinct;
+	}
+
+	public void write(Path path) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))))
+		{
+			out.writeInt(MAGIC);
+			out.writeLong(count);
+			out.writeLong(total);
+			out.writeLong(min);
+			out.writeLong(max);
+			quantiles.writeTo(out);
+			histogram.writeTo(out);
+			distinct.writeTo(out);
+		}
+	}
+
+	public static GroupSumSketches read(Path path) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))))
+		{
+			if (in.readInt() != MAGIC)
+			{
+				throw new IOException("Not a group sum sketch file: " + path);
+			}
+			long count = in.readLong();
+			long total = in.readLong();
+			long min = in.readLong();
+			long max = in.readLong();
+			GroupSumSketches sketches = new GroupSumSketches(QuantileSketch.readFrom(in), LatencyHistogram.readFrom(in), HyperLogLog.readFrom(in));
+			sketches.count = count;
+			sketches.total = total;
+			sketches.min = min;
+			sketches.max = max;
+			return sketches;
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		Path input = args.length > 0 ? Path.of(args[0]) : INPUT;
+		try
+		{
+			GroupSumSketches sketches = input.toString().endsWith(".sketch") ? read(input) : of(input);
+			if (args.length > 1)
+			{
+				sketches.write(Path.of(args[1]));
+			}
+			if (sketches.count() == 0)
+			{
+				System.out.println("No groups in " + input);
+				return;
+			}
+
+			System.out.printf("Groups: %d, total: %d, mean: %.1f, min: %d, max: %d%n", sketches.count(), sketches.total(), (double) sketches.total() / sketches.count(), sketches.min(), sketches.max());
+			System.out.printf("Distinct sums: ~%d (+-%.1f%%)%n", sketches.distinct().estimate(), sketches.distinct().standardError() * 100);
+			for (double q : new double[] {0.5, 0.9, 0.99, 0.999})
+			{
+				System.out.printf("p%s: %d%n", q * 100 % 1 == 0 ? String.valueOf((int) (q * 100)) : String.valueOf(q * 100), sketches.quantiles().quantile(q));
+			}
+
+			System.out.println("Histogram:");
+			LatencyHistogram histogram = sketches.histogram();
+			long below = 0;
+			long low = 0;
+			for (long edge = 1; edge > 0 && low <= sketches.max(); edge *= 2)
+			{
+				// Powers of two are bucket edges, so these counts are exact.
+				long upTo = histogram.countAtOrBelow(edge - 1);
+				if (upTo > below)
+				{
+					System.out.printf("  [%d, %d): %d%n", low, edge, upTo - below);
+				}
+				below = upTo;
+				low = edge;
+			}
+		}
+		catch (NoSuchFileException ex)
+		{
+			System.out.println("Error! File not found!");
+		}
+		catch (IOException ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+}
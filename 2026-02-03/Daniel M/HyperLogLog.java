@@ -0,0 +1,127 @@
+package _2022.day01;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * HyperLogLog distinct-value counter (Flajolet et al.) over long values. With {@code 2^p} one-byte
+ * registers the estimate has a standard error of about {@code 1.04 / sqrt(2^p)}: 0.8% for the
+ * default {@code p = 14}, in 16 KiB. Small counts use linear counting instead, which is close to
+ * exact.
+ *
+ * <p>Merging two counters (register-wise max) gives the same counter as adding both inputs to one.
+ */
+public class HyperLogLog
+{
+	private final int p;
+	private final byte[] registers;
+
+	public HyperLogLog()
+	{
+		this(14);
+	}
+
+	public HyperLogLog(int p)
+	{
+		if (p < 4 || p > 18)
+		{
+			throw new IllegalArgumentException("p must be between 4 and 18: " + p);
+		}
+		this.p = p;
+		registers = new byte[1 << p];
+	}
+
+	public void add(long value)
+	{
+		long hash = mix(value);
+		int index = (int) (hash >>> (64 - p));
+		// The bit at p - 1 caps the run of zeros, so rank fits in a byte.
+		int rank = Long.numberOfLeadingZeros(hash << p | 1L << (p - 1)) + 1;
+		if (rank > registers[index])
+		{
+			registers[index] = (byte) rank;
+		}
+	}
+
+	public void merge(HyperLogLog other)
+	{
+		if (other.p != p)
+		{
+			throw new IllegalArgumentException("Cannot merge counters with p " + p + " and " + other.p);
+		}
+		for (int i = 0; i < registers.length; i++)
+		{
+			if (other.registers[i] > registers[i])
+			{
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+
+	/**
+	 * Estimated number of distinct values added.
+	 */
+	public long estimate()
+	{
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers)
+		{
+			sum += 1.0 / (1L << register);
+			if (register == 0)
+			{
+				zeros++;
+			}
+		}
+
+		double alpha = 0.7213 / (1 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0)
+		{
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * Expected relative standard error of {@link #estimate()}.
+	 */
+	public double standardError()
+	{
+		return 1.04 / Math.sqrt(registers.length);
+	}
+
+	public void writeTo(DataOutput out) throws IOException
+	{
+		out.writeByte(p);
+		out.write(registers);
+	}
+
+	public static HyperLogLog readFrom(DataInput in) throws IOException
+	{
+		int p = in.readByte();
+		if (p < 4 || p > 18)
+		{
+			throw new IOException("Corrupt HyperLogLog: p = " + p);
+		}
+		HyperLogLog counter = new HyperLogLog(p);
+		in.readFully(counter.registers);
+		return counter;
+	}
+
+	/**
+	 * murmur3's 64-bit finalizer, offset so that 0 doesn't hash to 0.
+	 */
+	private static long mix(long value)
+	{
+		long h = value + 0x9E3779B97F4A7C15L;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,360 @@
+package _2022.day01;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * KLL quantile sketch (Karnin, Lang &amp; Liberty) over long values: fixed memory no matter how many
+ * values are added, and any quantile is answered to within about 1.5% of the total count in rank
+ * with the default {@code k = 200}.
+ *
+ * <p>Values are kept in levels; a value at level {@code h} stands for {@code 2^h} of the original
+ * values. When the sketch is over capacity, the lowest full level is sorted and every other value
+ * (starting at a random one of the first two) moves up a level, halving it. Upper levels are
+ * largest, lower levels shrink by a factor of 2/3 each, down to 2 values.
+ *
+ * <p>Sketches built on different parts of the input can be {@link #merge merged}, and the result is
+ * as accurate as one built on all of it. That relies on the sketches' coin flips being independent,
+ * so every sketch gets its own seed.
+ */
+public class QuantileSketch
+{
+	private static final int MIN_LEVEL_CAPACITY = 2;
+	private static final SplittableRandom SEEDS = new SplittableRandom();
+
+	private final int k;
+	private long[][] levels;
+	private int[] sizes;
+	private int[] capacities;
+	private int totalCapacity;
+	private int retained;
+	private long count;
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+	private long random;
+
+	public QuantileSketch()
+	{
+		this(200);
+	}
+
+	public QuantileSketch(int k)
+	{
+		this(k, nextSeed());
+	}
+
+	/**
+	 * A sketch whose coin flips are fixed by {@code seed}, for reproducible runs. Sketches that will
+	 * be merged need different seeds.
+	 */
+	public QuantileSketch(int k, long seed)
+	{
+		if (k < 8)
+		{
+			throw new IllegalArgumentException("k must be at least 8: " + k);
+		}
+		this.k = k;
+		levels = new long[][] {new long[k]};
+		sizes = new int[1];
+		updateCapacities();
+		// xorshift gets stuck at 0
+		random = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+	}
+
+	public void add(long value)
+	{
+		if (sizes[0] == levels[0].length)
+		{
+			levels[0] = Arrays.copyOf(levels[0], levels[0].length * 2);
+		}
+		levels[0][sizes[0]++] = value;
+		retained++;
+		count++;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+		compressIfFull();
+	}
+
+	/**
+	 * Adds everything in {@code other} to this sketch. {@code other} is left unchanged.
+	 */
+	public void merge(QuantileSketch other)
+	{
+		if (other.k != k)
+		{
+			throw new IllegalArgumentException("Cannot merge sketches with k " + k + " and " + other.k);
+		}
+		while (levels.length < other.levels.length)
+		{
+			addLevel();
+		}
+		for (int h = 0; h < other.levels.length; h++)
+		{
+			append(h, other.levels[h], other.sizes[h]);
+		}
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		compressIfFull();
+	}
+
+	public long count()
+	{
+		return count;
+	}
+
+	public long min()
+	{
+		return min;
+	}
+
+	public long max()
+	{
+		return max;
+	}
+
+	/**
+	 * Values currently stored, which bounds the sketch's memory.
+	 */
+	public int retained()
+	{
+		return retained;
+	}
+
+	/**
+	 * Estimated fraction of added values that are {@code <= value}.
+	 */
+	public double rank(long value)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+		long weight = 0;
+		for (int h = 0; h < levels.length; h++)
+		{
+			for (int i = 0; i < sizes[h]; i++)
+			{
+				if (levels[h][i] <= value)
+				{
+					weight += 1L << h;
+				}
+			}
+		}
+		return (double) weight / count;
+	}
+
+	/**
+	 * Estimated value at quantile {@code q} (0 to 1): the smallest stored value whose estimated rank
+	 * reaches {@code q}.
+	 */
+	public long quantile(double q)
+	{
+		if (count == 0)
+		{
+			throw new IllegalStateException("Empty sketch");
+		}
+		if (q <= 0)
+		{
+			return min;
+		}
+		if (q >= 1)
+		{
+			return max;
+		}
+
+		int n = retained();
+		long[] values = new long[n];
+		long[] weights = new long[n];
+		int at = 0;
+		for (int h = 0; h < levels.length; h++)
+		{
+			for (int i = 0; i < sizes[h]; i++)
+			{
+				values[at] = levels[h][i];
+				weights[at++] = 1L << h;
+			}
+		}
+		sortTogether(values, weights);
+
+		long target = (long) Math.ceil(q * count);
+		long seen = 0;
+		for (int i = 0; i < n; i++)
+		{
+			seen += weights[i];
+			if (seen >= target)
+			{
+				return values[i];
+			}
+		}
+		return max;
+	}
+
+	public void writeTo(DataOutput out) throws IOException
+	{
+		out.writeInt(k);
+		out.writeLong(count);
+		out.writeLong(min);
+		out.writeLong(max);
+		out.writeLong(random);
+		out.writeInt(levels.length);
+		for (int h = 0; h < levels.length; h++)
+		{
+			out.writeInt(sizes[h]);
+			for (int i = 0; i < sizes[h]; i++)
+			{
+				out.writeLong(levels[h][i]);
+			}
+		}
+	}
+
+	public static QuantileSketch readFrom(DataInput in) throws IOException
+	{
+		QuantileSketch sketch = new QuantileSketch(in.readInt(), 1);
+		sketch.count = in.readLong();
+		sketch.min = in.readLong();
+		sketch.max = in.readLong();
+		sketch.random = in.readLong();
+		int levelCount = in.readInt();
+		if (levelCount < 1 || levelCount > 64)
+		{
+			throw new IOException("Corrupt quantile sketch: " + levelCount + " levels");
+		}
+		sketch.levels = new long[levelCount][];
+		sketch.sizes = new int[levelCount];
+		sketch.updateCapacities();
+		for (int h = 0; h < levelCount; h++)
+		{
+			int size = in.readInt();
+			if (size < 0 || size > 1 << 24)
+			{
+				throw new IOException("Corrupt quantile sketch: level of " + size + " values");
+			}
+			sketch.levels[h] = new long[Math.max(size, sketch.capacity(h))];
+			sketch.sizes[h] = size;
+			sketch.retained += size;
+			for (int i = 0; i < size; i++)
+			{
+				sketch.levels[h][i] = in.readLong();
+			}
+		}
+		return sketch;
+	}
+
+	/**
+	 * Capacity of level {@code h}: {@code k} at the top level, 2/3 of that one level down, and so on.
+	 * Only changes when a level is added, so it is computed there rather than on every {@link #add}.
+	 */
+	private int capacity(int h)
+	{
+		return capacities[h];
+	}
+
+	private void updateCapacities()
+	{
+		capacities = new int[levels.length];
+		totalCapacity = 0;
+		for (int h = 0; h < levels.length; h++)
+		{
+			int depth = levels.length - 1 - h;
+			capacities[h] = Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+			totalCapacity += capacities[h];
+		}
+	}
+
+	private void compressIfFull()
+	{
+		// Both sides are kept up to date, so the common case of a sketch with room costs one compare.
+		while (retained > totalCapacity)
+		{
+			for (int h = 0; h < levels.length; h++)
+			{
+				if (sizes[h] >= capacity(h))
+				{
+					compact(h);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sorts level {@code h} and promotes every other value to level {@code h + 1}. With an odd count
+	 * the smallest value stays behind.
+	 */
+	private void compact(int h)
+	{
+		if (h + 1 == levels.length)
+		{
+			addLevel();
+		}
+
+		long[] level = levels[h];
+		int size = sizes[h];
+		Arrays.sort(level, 0, size);
+		int from = size & 1;
+		int offset = nextBit();
+		int promoted = (size - from) / 2;
+		long[] up = new long[promoted];
+		for (int i = 0; i < promoted; i++)
+		{
+			up[i] = level[from + 2 * i + offset];
+		}
+		sizes[h] = from;
+		retained -= size - from;
+		append(h + 1, up, promoted);
+	}
+
+	private void addLevel()
+	{
+		levels = Arrays.copyOf(levels, levels.length + 1);
+		sizes = Arrays.copyOf(sizes, sizes.length + 1);
+		levels[levels.length - 1] = new long[k];
+		updateCapacities();
+	}
+
+	private void append(int h, long[] values, int n)
+	{
+		if (sizes[h] + n > levels[h].length)
+		{
+			levels[h] = Arrays.copyOf(levels[h], Math.max(sizes[h] + n, levels[h].length * 2));
+		}
+		System.arraycopy(values, 0, levels[h], sizes[h], n);
+		sizes[h] += n;
+		retained += n;
+	}
+
+	private static synchronized long nextSeed()
+	{
+		return SEEDS.split().nextLong();
+	}
+
+	private int nextBit()
+	{
+		// xorshift64
+		random ^= random << 13;
+		random ^= random >>> 7;
+		random ^= random << 17;
+		return (int) (random >>> 63);
+	}
+
+	private static void sortTogether(long[] values, long[] weights)
+	{
+		Integer[] order = new Integer[values.length];
+		for (int i = 0; i < order.length; i++)
+		{
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(values[a], values[b]));
+		long[] v = values.clone();
+		long[] w = weights.clone();
+		for (int i = 0; i < order.length; i++)
+		{
+			values[i] = v[order[i]];
+			weights[i] = w[order[i]];
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package _2022.day01;
+
+import common.LatencyHistogram;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Checks {@link GroupSumSketches} against exact answers on generated day 1 inputs: quantile rank
+ * error, histogram value error, distinct-count error, and that saving a sketch doesn't change its
+ * answers. Each input is written as {@value #PARTS} files that are sketched in parallel (each of
+ * them again as a parallel stream of groups) and merged, so the bounds are checked on a sketch
+ * merged from many independently built ones. Exits with status 1 if any bound is exceeded.
+ *
+ * <pre>
+ * java _2022.day01.SketchCheck [groups]
+ * </pre>
+ */
+public class SketchCheck
+{
+	private static final double RANK_ERROR = 0.02;
+	private static final double HISTOGRAM_ERROR = 1.0 / 64;
+	private static final int PARTS = 16;
+	private static final double[] QUANTILES = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+	private static boolean failed;
+
+	public static void main(String[] args) throws IOException
+	{
+		int groups = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Path dir = Files.createTempDirectory("sketch-check");
+		try
+		{
+			check("calories", dir, groups, random -> 1000 + random.nextInt(59_000));
+			check("few distinct", dir, groups, random -> 1000 * (1 + random.nextInt(500)));
+			check("heavy tail", dir, groups, random -> (long) (100 / Math.pow(1 - random.nextDouble(), 1.5)));
+		}
+		finally
+		{
+			try (var files = Files.list(dir))
+			{
+				for (Path file : (Iterable<Path>) files::iterator)
+				{
+					Files.delete(file);
+				}
+			}
+			Files.delete(dir);
+		}
+
+		System.out.println(failed ? "FAILED" : "All bounds held");
+		if (failed)
+		{
+			System.exit(1);
+		}
+	}
+
+	private interface ItemSource
+	{
+		long next(Random random);
+	}
+
+	private static void check(String name, Path dir, int groups, ItemSource items) throws IOException
+	{
+		Random random = new Random(name.hashCode());
+		long[] sums = new long[groups];
+		Path[] parts = new Path[PARTS];
+		for (int part = 0; part < PARTS; part++)
+		{
+			parts[part] = dir.resolve(name.replace(' ', '-') + "-" + part + ".txt");
+			try (BufferedWriter out = Files.newBufferedWriter(parts[part]))
+			{
+				for (int g = (int) ((long) groups * part / PARTS); g < (long) groups * (part + 1) / PARTS; g++)
+				{
+					int size = 1 + random.nextInt(10);
+					for (int i = 0; i < size; i++)
+					{
+						long item = items.next(random);
+						sums[g] += item;
+						out.write(Long.toString(item));
+						out.newLine();
+					}
+					out.newLine();
+				}
+			}
+		}
+
+		GroupSumSketches sketches = IntStream.range(0, PARTS).parallel().mapToObj(part -> sketch(parts[part])).reduce((a, b) ->
+		{
+			a.merge(b);
+			return a;
+		}).orElseThrow();
+		Path saved = dir.resolve(name.replace(' ', '-') + ".sketch");
+		sketches.write(saved);
+		GroupSumSketches loaded = GroupSumSketches.read(saved);
+
+		long[] sorted = sums.clone();
+		Arrays.sort(sorted);
+		long exactDistinct = 1;
+		for (int i = 1; i < sorted.length; i++)
+		{
+			if (sorted[i] != sorted[i - 1])
+			{
+				exactDistinct++;
+			}
+		}
+
+		System.out.printf("%s: %d groups, %d distinct sums, %d values retained by the quantile sketch, %d bytes saved%n", name, groups, exactDistinct, sketches.quantiles().retained(), Files.size(saved));
+		expect(name + " count", sketches.count() == groups && loaded.count() == groups);
+		expect(name + " total", sketches.total() == Arrays.stream(sums).sum() && loaded.total() == sketches.total());
+		expect(name + " min/max", sketches.min() == sorted[0] && sketches.max() == sorted[groups - 1]);
+
+		double worstRank = 0;
+		double worstHistogram = 0;
+		for (double q : QUANTILES)
+		{
+			long estimate = sketches.quantiles().quantile(q);
+			expect(name + " saved p" + q, loaded.quantiles().quantile(q) == estimate);
+			// How far the estimate's true rank is from q, allowing for ties.
+			double low = (double) lowerBound(sorted, estimate) / groups;
+			double high = (double) upperBound(sorted, estimate) / groups;
+			worstRank = Math.max(worstRank, q < low ? low - q : q > high ? q - high : 0);
+
+			long exact = sorted[Math.max(0, (int) Math.ceil(q * groups) - 1)];
+			LatencyHistogram histogram = sketches.histogram();
+			worstHistogram = Math.max(worstHistogram, Math.abs(histogram.percentile(q) - exact) / (double) Math.max(1, exact));
+			expect(name + " saved histogram p" + q, loaded.histogram().percentile(q) == histogram.percentile(q));
+		}
+
+		long estimate = sketches.distinct().estimate();
+		double distinctError = Math.abs(estimate - exactDistinct) / (double) exactDistinct;
+		double distinctBound = 4 * sketches.distinct().standardError();
+		expect(name + " saved distinct", loaded.distinct().estimate() == estimate);
+
+		System.out.printf("  rank error %.4f (bound %.4f), histogram error %.4f (bound %.4f), distinct ~%d error %.4f (bound %.4f)%n", worstRank, RANK_ERROR, worstHistogram, HISTOGRAM_ERROR, estimate, distinctError, distinctBound);
+		expect(name + " rank error", worstRank <= RANK_ERROR);
+		expect(name + " histogram error", worstHistogram <= HISTOGRAM_ERROR);
+		expect(name + " distinct error", distinctError <= distinctBound);
+	}
+
+	private static GroupSumSketches sketch(Path part)
+	{
+		try
+		{
+			return GroupSumSketches.of(part);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void expect(String what, boolean ok)
+	{
+		if (!ok)
+		{
+			System.out.println("  FAILED: " + what);
+			failed = true;
+		}
+	}
+
+	/**
+	 * Number of values less than {@code value}.
+	 */
+	private static int lowerBound(long[] sorted, long value)
+	{
+		int lo = 0;
+		int hi = sorted.length;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (sorted[mid] < value)
+			{
+				lo = mid + 1;
+			}
+			else
+			{
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Number of values less than or equal to {@code value}.
+	 */
+	private static int upperBound(long[] sorted, long value)
+	{
+		return value == Long.MAX_VALUE ? sorted.length : lowerBound(sorted, value + 1);
+	}
+}
@@ -1,9 +1,10 @@
 package com.github.griffty;
 
+import common.Line;
+import common.MappedInput;
+
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -44,7 +45,7 @@ public class Main {
      * {@link List} of group sums, sorts the groups descending, and prints the largest group sum.
      *
      * <p>Behavior details:
-     * - Uses a {@link Scanner} to iterate lines.
+     * - Uses {@link MappedInput} to iterate lines as {@link Line} views.
      * - Maintains a {@code List<Integer> numbers} where each element is the sum of a group.
      * - On a blank line a new group sum (0) is appended.
      * - After reading all lines the list is sorted in descending order and the first element is
@@ -53,50 +54,48 @@ public class Main {
      * <p>Time complexity: O(L + g log g)
      * - L = number of input lines (parsing and summing groups)
      * - g = number of groups (sorting dominates: g log g)
-     * Space complexity: O(g) extra space to store the group sums (plus negligible scanner buffers).
+     * Space complexity: O(g) extra space to store the group sums (the file itself is mapped, not copied).
      *
-     * @throws FileNotFoundException if {@code INPUT_FILE} is not found or cannot be opened
+     * @throws IOException if {@code INPUT_FILE} is not found or cannot be opened
      *
 
      */
-    private static void firstList() throws FileNotFoundException {
-        Scanner sc = new Scanner(INPUT_FILE);
+    private static void firstList() throws IOException {
         List<Integer> numbers = new ArrayList<>();
         numbers.add(0);
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
+        for (Line line : MappedInput.open(INPUT_FILE.toPath())) {
             if (line.isBlank()) {
                 numbers.add(0);
                 continue;
             }
-            numbers.set(numbers.size()-1, numbers.getLast() + Integer.parseInt(line));
+            numbers.set(numbers.size()-1, numbers.getLast() + line.parseInt());
         }
         numbers.sort((a, b) -> b - a);
         System.out.println(numbers.getFirst());
     }
 
     /**
-     * Stream-based implementation that reads the entire file into memory, splits it into groups by
-     * blank lines, converts each group's lines to integers, sums them, and prints the maximum sum.
+     * Stream-based implementation that maps the file, streams it as groups separated by blank
+     * lines, converts each group's lines to integers, sums them, and prints the maximum sum.
      *
      * <p>Behavior details:
-     * - Reads the whole file as a single string with {@link Files#readString(Path)}.
-     * - Splits into groups on occurrences of a blank line sequence.
-     * - For each group, splits by line breaks, parses integers and sums them.
+     * - Maps the file with {@link MappedInput#open(Path)}.
+     * - {@link MappedInput#blocks()} yields one view per group, split on blank lines.
+     * - For each group, {@link Line#lines()} yields its lines, which are parsed and summed.
      * - Uses an IntStream to compute the maximum group sum (or 0 if there are no groups).
      * <p>
      * Time complexity: O(N)
      * - N = total number of characters / tokens parsed. Each character/number is processed a
      *   constant number of times.
-     * Space complexity: O(S)
-     * - S = size of the file in memory (method reads the entire file into a String and creates
-     *   intermediate arrays for the groups). This can be large for big files.
+     * Space complexity: O(1)
+     * - The file is mapped rather than read into a String, and groups and lines are views over
+     *   the mapping, so no per-group arrays are created.
      *
      * @throws IOException if reading the file fails
      *
      */
     private static void firstListStream() throws IOException {
-        System.out.println(Arrays.stream(Files.readString(Path.of("2026-02-03/Volo/input.txt")).split("\\R\\s*\\R")).mapToInt(group ->Arrays.stream(group.split("\\R")).mapToInt(Integer::parseInt).sum()).max().orElse(0));
+        System.out.println(MappedInput.open(Path.of("2026-02-03/Volo/input.txt")).blocks().mapToInt(group -> group.lines().mapToInt(Line::parseInt).sum()).max().orElse(0));
     }
 
     /**
@@ -112,20 +111,18 @@ public class Main {
      *   Time complexity: O(L + g log g) where L = number of lines, g = number of groups (sorting dominates)
      *   Space complexity: O(g) to store group sums
      *
-     * @throws FileNotFoundException if {@code INPUT_FILE} is not found or cannot be opened
+     * @throws IOException if {@code INPUT_FILE} is not found or cannot be opened
      *
      */
-    private static void firstThreeList() throws FileNotFoundException {
-        Scanner sc = new Scanner(INPUT_FILE);
+    private static void firstThreeList() throws IOException {
         List<Integer> numbers = new ArrayList<>();
         numbers.add(0);
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
+        for (Line line : MappedInput.open(INPUT_FILE.toPath())) {
             if (line.isBlank()) {
                 numbers.add(0);
                 continue;
             }
-            numbers.set(numbers.size()-1, numbers.getLast() + Integer.parseInt(line));
+            numbers.set(numbers.size()-1, numbers.getLast() + line.parseInt());
         }
         numbers.sort((a, b) -> b - a);
         System.out.println(numbers.get(0) + numbers.get(1) + numbers.get(2));
@@ -133,24 +130,24 @@ public class Main {
 
 
     /**
-     * Stream-based implementation that reads the entire file, computes each group's sum, sorts the
+     * Stream-based implementation that maps the file, computes each group's sum, sorts the
      * group sums in descending order, limits to the top three, and prints their total.
      *
      * <p>Behavior details:
-     * - Reads file into memory, splits into groups, computes group sums via streams.
+     * - Maps the file, streams its groups as views, computes group sums via streams.
      * - Boxes the IntStream to Stream<Integer> in order to sort in descending order, limits to 3,
      *   then sums the results.
      *   <p>
      * Time complexity: O(N + g log g)
      * - N = total parsed tokens; g = number of groups (sorting the boxed list is g log g)
-     * Space complexity: O(S + g)
-     * - S = file size in memory, plus O(g) for boxed group sums created for sorting
+     * Space complexity: O(g)
+     * - O(g) for boxed group sums created for sorting; the file itself is mapped, not copied
      *
      * @throws IOException if reading the file fails
      *
      */
     private static void firstThreeListStream() throws IOException {
-        System.out.println(Arrays.stream(Files.readString(Path.of("2026-02-03/Volo/input.txt")).split("\\R\\s*\\R")).mapToInt(group -> Arrays.stream(group.split("\\R")).mapToInt(Integer::parseInt).sum()).boxed().sorted((a, b) -> b - a).limit(3).mapToInt(Integer::intValue).sum());
+        System.out.println(MappedInput.open(Path.of("2026-02-03/Volo/input.txt")).blocks().mapToInt(group -> group.lines().mapToInt(Line::parseInt).sum()).boxed().sorted((a, b) -> b - a).limit(3).mapToInt(Integer::intValue).sum());
     }
 
     /**
@@ -158,7 +155,7 @@ public class Main {
      * sum, and keeps track of the maximum group sum seen so far. The final maximum is printed.
      *
      * <p>Behavior details:
-     * - Uses a {@link Scanner} to read lines sequentially.
+     * - Uses {@link MappedInput} to read lines sequentially.
      * - Accumulates the current group's sum in {@code current}; on a blank line compares and
      *   updates {@code max} and resets {@code current}.
      * - After the loop, compares the final {@code current} in case the file does not end with a
@@ -166,15 +163,13 @@ public class Main {
      *   <p>
      * Time complexity: O(L) where L is the number of lines (each line is processed once)
      * Space complexity: O(1) additional space beyond input streaming buffers
-     * @throws FileNotFoundException if {@code INPUT_FILE} is not found or cannot be opened
+     * @throws IOException if {@code INPUT_FILE} is not found or cannot be opened
      *
      */
-    private static void firstLinear() throws FileNotFoundException {
-        Scanner sc = new Scanner(INPUT_FILE);
+    private static void firstLinear() throws IOException {
         int max = 0;
         int current = 0;
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
+        for (Line line : MappedInput.open(INPUT_FILE.toPath())) {
             if (line.isBlank()) {
                 if (current > max) {
                     max = current;
@@ -182,7 +177,7 @@ public class Main {
                 current = 0;
                 continue;
             }
-            current += Integer.parseInt(line);
+            current += line.parseInt();
         }
         if (current > max) {
             max = current;
@@ -205,21 +200,19 @@ public class Main {
      * Space complexity: O(1) additional space (the {@code topThree} array is constant-size)
      *
      *
-     * @throws FileNotFoundException if {@code INPUT_FILE} is not found or cannot be opened
+     * @throws IOException if {@code INPUT_FILE} is not found or cannot be opened
      *
      */
-    private static void firstThreeLinear() throws FileNotFoundException {
-        Scanner sc = new Scanner(INPUT_FILE);
+    private static void firstThreeLinear() throws IOException {
         int[] topThree = new int[3];
         int current = 0;
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
+        for (Line line : MappedInput.open(INPUT_FILE.toPath())) {
             if (line.isBlank()) {
                 check(topThree, current);
                 current = 0;
                 continue;
             }
-            current += Integer.parseInt(line);
+            current += line.parseInt();
         }
         check(topThree, current);
         System.out.println(Arrays.stream(topThree).sum());
@@ -0,0 +1,216 @@
+package _2023.day08;
+
+import common.Line;
+import common.MappedInput;
+import common.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers many "steps from X until reaching Y" questions against one network.
+ *
+ * <p>Queries are grouped by start node and each group is answered by one walk. The walk moves a
+ * whole pass of the instructions at a time using the network's memoized {@link Network.Pass}es:
+ * for every target still open it asks the current pass whether (and after how many steps) it
+ * reaches that target, and otherwise jumps to where the pass ends. Passes are the (node,
+ * instruction 0) states and are shared by all walks, so walks from different starts that meet
+ * reuse each other's work, and nothing per start is kept after the batch. Groups run in parallel
+ * on a fork/join pool.
+ *
+ * <p>A walk is over once it comes back to a node it has already started a pass from: from then on
+ * it only repeats itself, so any target it has not reached yet is unreachable and is answered with
+ * -1 instead of looping forever. The same goes for a walk that runs into a missing edge.
+ *
+ * <p>A query naming a node that isn't in the network is answered with {@link #UNKNOWN_NODE}; the
+ * rest of the batch is answered as usual.
+ */
+public class BatchQuery
+{
+	/** Answer for a query whose start or target is not a node of the network. */
+	public static final long UNKNOWN_NODE = -2;
+
+	private static final LongAdder PASSES = Metrics.counter("day8.batch.passes");
+
+	private final Network network;
+	private final ForkJoinPool pool;
+
+	public static class Query
+	{
+		private final String from;
+		private final String to;
+
+		public Query(String from, String to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+
+		public String getFrom()
+		{
+			return from;
+		}
+
+		public String getTo()
+		{
+			return to;
+		}
+	}
+
+	public BatchQuery(Network network)
+	{
+		this(network, ForkJoinPool.commonPool());
+	}
+
+	public BatchQuery(Network network, ForkJoinPool pool)
+	{
+		this.network = network;
+		this.pool = pool;
+	}
+
+	public static long[] answer(Network network, Query[] queries)
+	{
+		return new BatchQuery(network).answer(Arrays.asList(queries));
+	}
+
+	/**
+	 * Steps for each query, in order, -1 where the target is never reached, or
+	 * {@link #UNKNOWN_NODE}.
+	 */
+	public long[] answer(List<Query> queries)
+	{
+		long[] answers = new long[queries.size()];
+		int[] targets = new int[queries.size()];
+		Map<Integer, List<Integer>> byStart = new HashMap<>();
+		for (int i = 0; i < queries.size(); i++)
+		{
+			Query query = queries.get(i);
+			int from = network.find(query.getFrom());
+			targets[i] = network.find(query.getTo());
+			if (from == Network.NONE || targets[i] == Network.NONE)
+			{
+				answers[i] = UNKNOWN_NODE;
+				continue;
+			}
+			byStart.computeIfAbsent(from, k -> new ArrayList<>()).add(i);
+		}
+
+		List<Map.Entry<Integer, List<Integer>>> groups = new ArrayList<>(byStart.entrySet());
+		pool.invoke(new GroupTask(groups, 0, groups.size(), targets, answers));
+		return answers;
+	}
+
+	private void answerGroup(int start, List<Integer> queryIndexes, int[] targets, long[] answers)
+	{
+		int open = queryIndexes.size();
+		for (int q : queryIndexes)
+		{
+			answers[q] = -1;
+		}
+
+		long[] passStarts = new long[(network.size() + 63) >>> 6];
+		long steps = 0;
+		int node = start;
+		while (open > 0)
+		{
+			Network.Pass pass = network.pass(node);
+			for (int q : queryIndexes)
+			{
+				if (answers[q] < 0)
+				{
+					int at = pass.stepsTo(targets[q]);
+					if (at >= 0)
+					{
+						answers[q] = steps + at;
+						open--;
+					}
+				}
+			}
+
+			passStarts[node >>> 6] |= 1L << node;
+			if (pass.end == Network.NONE || (passStarts[pass.end >>> 6] & 1L << pass.end) != 0)
+			{
+				break;
+			}
+			node = pass.end;
+			steps += network.instructionCount();
+
+			if (Metrics.ENABLED)
+			{
+				PASSES.increment();
+			}
+		}
+	}
+
+	private class GroupTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final List<Map.Entry<Integer, List<Integer>>> groups;
+		private final int from;
+		private final int to;
+		private final int[] targets;
+		private final long[] answers;
+
+		GroupTask(List<Map.Entry<Integer, List<Integer>>> groups, int from, int to, int[] targets, long[] answers)
+		{
+			this.groups = groups;
+			this.from = from;
+			this.to = to;
+			this.targets = targets;
+			this.answers = answers;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= 1)
+			{
+				for (int i = from; i < to; i++)
+				{
+					answerGroup(groups.get(i).getKey(), groups.get(i).getValue(), targets, answers);
+				}
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(new GroupTask(groups, from, mid, targets, answers), new GroupTask(groups, mid, to, targets, answers));
+		}
+	}
+
+	/**
+	 * Reads "FROM TO" pairs, one per line, and prints the steps for each.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		Path networkPath = Path.of(args.length > 0 ? args[0] : "./src/main/java/_2023/day08/input.txt");
+		Path queryPath = Path.of(args.length > 1 ? args[1] : "./src/main/java/_2023/day08/queries.txt");
+
+		Metrics.start();
+		Network network = Network.parse(networkPath);
+		List<Query> queries = new ArrayList<>();
+		for (Line line : MappedInput.open(queryPath))
+		{
+			String[] pair = line.toString().trim().split("\\s+");
+			if (pair.length == 2)
+			{
+				queries.add(new Query(pair[0], pair[1]));
+			}
+		}
+
+		long[] answers = new BatchQuery(network).answer(queries);
+		for (int i = 0; i < answers.length; i++)
+		{
+			Query query = queries.get(i);
+			System.out.println(query.getFrom() + " -> " + query.getTo() + ": " + (answers[i] == UNKNOWN_NODE ? "unknown node" : answers[i] < 0 ? "unreachable" : answers[i]));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package _2023.day08;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks {@link BatchQuery} against a plain step-by-step walk. Each round answers a batch of random
+ * queries (plus one naming an unknown node) on a pool of {@code threads} workers, compares every
+ * answer, then makes a few random edits to the network: retargeted edges, removed edges and new
+ * nodes. Exits with status 1 on the first mismatch.
+ *
+ * <pre>
+ * java _2023.day08.BatchQueryCheck [input] [rounds] [threads]
+ * </pre>
+ */
+public class BatchQueryCheck
+{
+	public static void main(String[] args) throws IOException
+	{
+		Path input = Path.of(args.length > 0 ? args[0] : "./src/main/java/_2023/day08/input.txt");
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+		Network network = Network.parse(input);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		Random random = new Random(8);
+		int checked = 0;
+		for (int round = 0; round < rounds; round++)
+		{
+			List<BatchQuery.Query> queries = new ArrayList<>();
+			for (int i = 0; i < 300; i++)
+			{
+				queries.add(new BatchQuery.Query(network.name(random.nextInt(network.size())), network.name(random.nextInt(network.size()))));
+			}
+			queries.add(new BatchQuery.Query(network.name(0), "no such node"));
+
+			long[] answers = new BatchQuery(network, pool).answer(queries);
+			for (int i = 0; i < queries.size(); i++)
+			{
+				BatchQuery.Query query = queries.get(i);
+				long expected = walk(network, query.getFrom(), query.getTo());
+				if (answers[i] != expected)
+				{
+					System.out.println("FAILED: round " + round + ", " + query.getFrom() + " -> " + query.getTo() + ": " + answers[i] + ", walking gives " + expected);
+					System.exit(1);
+				}
+				checked++;
+			}
+
+			for (int edit = 0; edit < 3; edit++)
+			{
+				String node = network.name(random.nextInt(network.size()));
+				int kind = random.nextInt(5);
+				if (kind == 0)
+				{
+					network.setEdge(node, random.nextBoolean(), null);
+				}
+				else if (kind == 1)
+				{
+					network.addNode("new" + round + "_" + edit, network.name(random.nextInt(network.size())), null);
+				}
+				else
+				{
+					network.setEdge(node, random.nextBoolean(), network.name(random.nextInt(network.size())));
+				}
+			}
+		}
+		pool.shutdown();
+
+		System.out.println(checked + " answers over " + rounds + " rounds match the step-by-step walk");
+	}
+
+	/**
+	 * Steps from {@code from} until first reaching {@code to}, one instruction at a time; -1 once a
+	 * (node, instruction) state repeats or an edge is missing.
+	 */
+	private static long walk(Network network, String from, String to)
+	{
+		int target;
+		int current;
+		try
+		{
+			target = network.id(to);
+			current = network.id(from);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return BatchQuery.UNKNOWN_NODE;
+		}
+
+		Set<Long> seen = new HashSet<>();
+		int instruction = 0;
+		long steps = 0;
+		while (current != target)
+		{
+			if (current == Network.NONE || !seen.add((long) current * network.instructionCount() + instruction))
+			{
+				return -1;
+			}
+			current = network.next(current, instruction);
+			instruction = (instruction + 1) % network.instructionCount();
+			steps++;
+		}
+		return steps;
+	}
+}
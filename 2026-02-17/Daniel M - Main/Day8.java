@@ -1,9 +1,15 @@
 package _2023.day08;
 
-import java.util.Scanner;
-import java.io.File;
-import java.io.FileNotFoundException;
+import common.Line;
+import common.MappedInput;
+import common.Metrics;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Day8
 {
@@ -11,37 +17,57 @@ public class Day8
 	public static ArrayList<String> nodes = new ArrayList<String>();
 	public static ArrayList<Coordinate> coords = new ArrayList<Coordinate>();
 	public static int count = 0;
+	private static final LongAdder STEPS = Metrics.counter("day8.steps");
 
 	public static void main(String[] args)
 	{
-		try (Scanner input = new Scanner(new File("./src/main/java/_2023/day08/input.txt")))
-		//try (Scanner input = new Scanner(new File("./src/main/java/_2023/day08/input_test.txt")))
+		Metrics.start();
+		try
+		{
+			System.out.println("The answer is " + solve(Path.of("./src/main/java/_2023/day08/input.txt")));
+			//System.out.println("The answer is " + solve(Path.of("./src/main/java/_2023/day08/input_test.txt")));
+		}
+		catch (NoSuchFileException ex)
+		{
+			System.out.println("Error! File not found!");
+		}
+		catch (IOException ex)
 		{
-			String[] instr = input.nextLine().split("");
+			ex.printStackTrace();
+		}
+	}
 
-			for (int i = 0; i < instr.length; i++)
-			{
-				instructions.add(instr[i]);
-			}
+	public static String solve(Path path) throws IOException
+	{
+		instructions.clear();
+		nodes.clear();
+		coords.clear();
+		count = 0;
 
-			input.nextLine();
+		Iterator<Line> input = MappedInput.open(path).iterator();
 
-			while (input.hasNextLine())
-			{
-				String[] line = input.nextLine().split(" = ");
+		Line instr = input.next();
 
-				nodes.add(line[0]);
+		for (int i = 0; i < instr.length(); i++)
+		{
+			instructions.add(String.valueOf(instr.charAt(i)));
+		}
 
-				String[] coord = line[1].split("[(),\\s]+");
-				String x = coord[1];
-				String y = coord[2];
+		input.next();
 
-				coords.add(new Coordinate(x, y));
-			}
-		}
-		catch (FileNotFoundException ex)
+		while (input.hasNext())
 		{
-			System.out.println("Error! File not found!");
+			// "AAA = (BBB, CCC)"
+			Line line = input.next();
+
+			nodes.add(line.subSequence(0, line.indexOf(' ', 0)).toString());
+
+			int open = line.indexOf('(', 0);
+			int comma = line.indexOf(',', open);
+			String x = line.subSequence(open + 1, comma).toString().trim();
+			String y = line.subSequence(comma + 1, line.indexOf(')', comma)).toString().trim();
+
+			coords.add(new Coordinate(x, y));
 		}
 
 		String currentNode = "AAA";
@@ -67,10 +93,15 @@ public class Day8
 
 			count++;
 
+			if (Metrics.ENABLED)
+			{
+				STEPS.increment();
+			}
+
 			// Move to next instruction (loop back if needed)
 			instructionIndex = (instructionIndex + 1) % instructions.size();
 		}
 
-		System.out.println("The answer is " + count);
+		return String.valueOf(count);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,384 @@
+package _2023.day08;
+
+import common.Line;
+import common.MappedInput;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A day 8 network compiled to arrays: nodes are numbered, each node's left and right targets are
+ * plain ints, and instructions are booleans (true = R). Following an edge is an array read instead
+ * of {@code nodes.indexOf}.
+ *
+ * <p>Walks are answered a whole pass of the instructions at a time (see {@link BatchQuery}): for
+ * each node, the {@link Pass} starting there at instruction 0 records where the pass ends and the
+ * first step at which it reaches every node on the way. Passes are computed on first use and shared
+ * by every query that goes through that node, so there are at most {@link #size()} of them.
+ *
+ * <p>The network can be edited in place ({@link #setEdge}, {@link #addNode}). Passes are only
+ * thrown away where an edit can have changed them: each cached pass is registered with every node
+ * it stepped from, so editing a node drops just the passes through it. Dropped passes are
+ * recomputed the next time they are asked for. Edits must not run at the same time as queries.
+ *
+ * <p>Queries on different threads compute passes without waiting for each other: a pass is walked
+ * without a lock and published with a compare-and-set, and only registering it with the nodes it
+ * stepped from is done under the lock.
+ */
+public class Network
+{
+	/** Edge target meaning "no edge": a walk that needs it stops there. */
+	public static final int NONE = -1;
+
+	private String[] names;
+	private final Map<String, Integer> ids;
+	private int[] left;
+	private int[] right;
+	private final boolean[] instructions;
+	private int size;
+
+	private AtomicReferenceArray<Pass> passes;
+	private int[][] dependents;
+	private int[] dependentCount;
+	private int[] compactStamp;
+	private int compactCounter;
+
+	Network(String[] names, Map<String, Integer> ids, int[] left, int[] right, boolean[] instructions)
+	{
+		this.names = names;
+		this.ids = ids;
+		this.left = left;
+		this.right = right;
+		this.instructions = instructions;
+		this.size = names.length;
+
+		passes = new AtomicReferenceArray<>(size);
+		dependents = new int[size][];
+		dependentCount = new int[size];
+		compactStamp = new int[size];
+	}
+
+	public static Network parse(Path path) throws IOException
+	{
+		Iterator<Line> input = MappedInput.open(path).iterator();
+
+		Line instr = input.next();
+		if (instr.isBlank())
+		{
+			throw new IllegalArgumentException("No instructions in " + path);
+		}
+		boolean[] instructions = new boolean[instr.length()];
+		for (int i = 0; i < instr.length(); i++)
+		{
+			instructions[i] = instr.charAt(i) == 'R';
+		}
+
+		input.next();
+
+		List<String[]> lines = new ArrayList<>();
+		Map<String, Integer> ids = new HashMap<>();
+		while (input.hasNext())
+		{
+			// "AAA = (BBB, CCC)"
+			Line line = input.next();
+			if (line.isBlank())
+			{
+				continue;
+			}
+
+			int open = line.indexOf('(', 0);
+			int comma = line.indexOf(',', open);
+			String node = line.subSequence(0, line.indexOf(' ', 0)).toString();
+			String x = line.subSequence(open + 1, comma).toString().trim();
+			String y = line.subSequence(comma + 1, line.indexOf(')', comma)).toString().trim();
+
+			ids.put(node, lines.size());
+			lines.add(new String[] {node, x, y});
+		}
+
+		String[] names = new String[lines.size()];
+		int[] left = new int[lines.size()];
+		int[] right = new int[lines.size()];
+		for (int i = 0; i < lines.size(); i++)
+		{
+			String[] line = lines.get(i);
+			names[i] = line[0];
+			left[i] = require(ids, line[1]);
+			right[i] = require(ids, line[2]);
+		}
+
+		return new Network(names, ids, left, right, instructions);
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public int instructionCount()
+	{
+		return instructions.length;
+	}
+
+	public int id(String name)
+	{
+		return require(ids, name);
+	}
+
+	/**
+	 * The id of {@code name}, or {@link #NONE} if there is no such node.
+	 */
+	int find(String name)
+	{
+		Integer id = ids.get(name);
+		return id == null ? NONE : id;
+	}
+
+	public String name(int id)
+	{
+		return names[id];
+	}
+
+	/**
+	 * The node reached from {@code node} when following instruction number {@code instruction},
+	 * or {@link #NONE}.
+	 */
+	public int next(int node, int instruction)
+	{
+		return instructions[instruction] ? right[node] : left[node];
+	}
+
+	/**
+	 * Steps from {@code from} until first reaching {@code to}, or -1 if {@code to} is never
+	 * reached.
+	 */
+	public long steps(String from, String to)
+	{
+		// Unknown names are an error here rather than an answer.
+		id(from);
+		id(to);
+		return BatchQuery.answer(this, new BatchQuery.Query[] {new BatchQuery.Query(from, to)})[0];
+	}
+
+	/**
+	 * Retargets, adds or (with a null {@code target}) removes the left or right edge of
+	 * {@code node}.
+	 */
+	public void setEdge(String node, boolean rightSide, String target)
+	{
+		int id = id(node);
+		int to = target == null ? NONE : id(target);
+		if (rightSide)
+		{
+			right[id] = to;
+		}
+		else
+		{
+			left[id] = to;
+		}
+		changed(id);
+	}
+
+	/**
+	 * Adds a node; {@code leftTarget} and {@code rightTarget} may be null (no edge) or the new
+	 * node's own name.
+	 */
+	public int addNode(String name, String leftTarget, String rightTarget)
+	{
+		if (ids.containsKey(name))
+		{
+			throw new IllegalArgumentException("Node " + name + " already exists");
+		}
+		// Resolved before anything changes, so an unknown target leaves the network as it was.
+		int id = size;
+		int leftId = leftTarget == null ? NONE : name.equals(leftTarget) ? id : id(leftTarget);
+		int rightId = rightTarget == null ? NONE : name.equals(rightTarget) ? id : id(rightTarget);
+
+		if (size == names.length)
+		{
+			int capacity = Math.max(16, size * 2);
+			names = Arrays.copyOf(names, capacity);
+			left = Arrays.copyOf(left, capacity);
+			right = Arrays.copyOf(right, capacity);
+			AtomicReferenceArray<Pass> grown = new AtomicReferenceArray<>(capacity);
+			for (int i = 0; i < size; i++)
+			{
+				grown.set(i, passes.get(i));
+			}
+			passes = grown;
+			dependents = Arrays.copyOf(dependents, capacity);
+			dependentCount = Arrays.copyOf(dependentCount, capacity);
+			compactStamp = Arrays.copyOf(compactStamp, capacity);
+		}
+
+		size++;
+		names[id] = name;
+		ids.put(name, id);
+		left[id] = leftId;
+		right[id] = rightId;
+		return id;
+	}
+
+	/**
+	 * One full pass of the instructions from a node, starting at instruction 0. Immutable, so
+	 * queries can read a pass without holding the network's lock.
+	 */
+	static final class Pass
+	{
+		/** Where the pass ends, or {@link #NONE} if it runs into a missing edge. */
+		final int end;
+		/** Nodes reached during the pass (not counting {@link #end}), sorted. */
+		private final int[] nodes;
+		/** Step at which the pass first reaches the node at the same index of {@link #nodes}. */
+		private final int[] steps;
+
+		Pass(int end, int[] nodes, int[] steps)
+		{
+			this.end = end;
+			this.nodes = nodes;
+			this.steps = steps;
+		}
+
+		/**
+		 * Steps from the start of the pass until first reaching {@code node}, or -1.
+		 */
+		int stepsTo(int node)
+		{
+			int i = Arrays.binarySearch(nodes, node);
+			return i < 0 ? -1 : steps[i];
+		}
+	}
+
+	/**
+	 * Where one full pass of the instructions from {@code node} ends, or {@link #NONE} if it runs
+	 * into a missing edge.
+	 */
+	public int passEnd(int node)
+	{
+		return pass(node).end;
+	}
+
+	/**
+	 * The pass from {@code node}, computed on first use and kept until an edit touches it.
+	 */
+	Pass pass(int node)
+	{
+		Pass pass = passes.get(node);
+		return pass != null ? pass : computePass(node);
+	}
+
+	/**
+	 * Walks the pass from {@code node} without holding the lock. If another thread publishes the
+	 * same pass first, its copy wins and this one is dropped.
+	 */
+	private Pass computePass(int node)
+	{
+		// (node << 32 | step) for every step; sorted, the first entry per node is its first visit.
+		long[] visits = new long[instructions.length];
+		int count = 0;
+		int current = node;
+		for (int i = 0; i < instructions.length && current != NONE; i++)
+		{
+			visits[count++] = (long) current << 32 | i;
+			current = next(current, i);
+		}
+
+		Arrays.sort(visits, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++)
+		{
+			if (distinct == 0 || visits[i] >>> 32 != visits[distinct - 1] >>> 32)
+			{
+				visits[distinct++] = visits[i];
+			}
+		}
+		int[] nodes = new int[distinct];
+		int[] steps = new int[distinct];
+		for (int i = 0; i < distinct; i++)
+		{
+			nodes[i] = (int) (visits[i] >>> 32);
+			steps[i] = (int) visits[i];
+		}
+
+		Pass pass = new Pass(current, nodes, steps);
+		if (!passes.compareAndSet(node, null, pass))
+		{
+			return passes.get(node);
+		}
+		register(node, nodes);
+		return pass;
+	}
+
+	private synchronized void register(int passStart, int[] nodes)
+	{
+		for (int n : nodes)
+		{
+			addDependent(n, passStart);
+		}
+	}
+
+	private synchronized void changed(int node)
+	{
+		// Every cached pass that stepped from this node may now go somewhere else.
+		for (int i = 0; i < dependentCount[node]; i++)
+		{
+			passes.set(dependents[node][i], null);
+		}
+		dependentCount[node] = 0;
+	}
+
+	private void addDependent(int node, int passStart)
+	{
+		int[] list = dependents[node];
+		if (list == null)
+		{
+			list = dependents[node] = new int[4];
+		}
+		else if (dependentCount[node] == list.length)
+		{
+			dependentCount[node] = compact(list, dependentCount[node]);
+			if (dependentCount[node] > list.length / 2)
+			{
+				list = dependents[node] = Arrays.copyOf(list, list.length * 2);
+			}
+		}
+		list[dependentCount[node]++] = passStart;
+	}
+
+	/**
+	 * Drops entries for passes that have since been invalidated (they re-register when
+	 * recomputed) and duplicates, so lists don't grow with every edit.
+	 */
+	private int compact(int[] list, int count)
+	{
+		int stampValue = ++compactCounter;
+		int kept = 0;
+		for (int i = 0; i < count; i++)
+		{
+			int pass = list[i];
+			if (passes.get(pass) != null && compactStamp[pass] != stampValue)
+			{
+				compactStamp[pass] = stampValue;
+				list[kept++] = pass;
+			}
+		}
+		return kept;
+	}
+
+	private static int require(Map<String, Integer> ids, String name)
+	{
+		Integer id = ids.get(name);
+		if (id == null)
+		{
+			throw new IllegalArgumentException("Unknown node " + name);
+		}
+		return id;
+	}
+}
@@ -0,0 +1,86 @@
+package _2023.day08;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares applying a small edit to a compiled network against rebuilding it from the input file,
+ * in both cases followed by answering the same fixed set of queries. After an edit only the passes
+ * through the edited nodes are recomputed; after a rebuild every pass the queries need is.
+ *
+ * <pre>
+ * java _2023.day08.NetworkDeltaBenchmark [input] [rounds] [editsPerRound]
+ * </pre>
+ */
+public class NetworkDeltaBenchmark
+{
+	public static void main(String[] args) throws IOException
+	{
+		Path input = Path.of(args.length > 0 ? args[0] : "./src/main/java/_2023/day08/input.txt");
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		int editsPerRound = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+		Network network = Network.parse(input);
+		Random random = new Random(8);
+		List<BatchQuery.Query> queries = new ArrayList<>();
+		for (int i = 0; i < 200; i++)
+		{
+			queries.add(new BatchQuery.Query(network.name(random.nextInt(network.size())), network.name(random.nextInt(network.size()))));
+		}
+
+		BatchQuery engine = new BatchQuery(network);
+		engine.answer(queries);
+
+		List<String[]> edits = new ArrayList<>();
+		long deltaNanos = 0;
+		long rebuildNanos = 0;
+		for (int round = 0; round < rounds; round++)
+		{
+			int firstEdit = edits.size();
+			for (int i = 0; i < editsPerRound; i++)
+			{
+				// {node, "L" or "R", target}
+				edits.add(new String[] {network.name(random.nextInt(network.size())), random.nextBoolean() ? "R" : "L", network.name(random.nextInt(network.size()))});
+			}
+
+			long start = System.nanoTime();
+			for (int i = firstEdit; i < edits.size(); i++)
+			{
+				apply(network, edits.get(i));
+			}
+			long[] incremental = engine.answer(queries);
+			deltaNanos += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			Network rebuilt = Network.parse(input);
+			for (String[] edit : edits)
+			{
+				apply(rebuilt, edit);
+			}
+			long[] full = new BatchQuery(rebuilt).answer(queries);
+			rebuildNanos += System.nanoTime() - start;
+
+			for (int i = 0; i < full.length; i++)
+			{
+				if (full[i] != incremental[i])
+				{
+					throw new IllegalStateException("Incremental answer " + incremental[i] + " != rebuilt answer " + full[i] + " for query " + i);
+				}
+			}
+		}
+
+		System.out.printf("%d nodes, %d instructions, %d rounds of %d edit(s)%n", network.size(), network.instructionCount(), rounds, editsPerRound);
+		System.out.printf("%-12s %12s%n", "", "ms / round");
+		System.out.printf("%-12s %12.3f%n", "delta", deltaNanos / 1e6 / rounds);
+		System.out.printf("%-12s %12.3f%n", "rebuild", rebuildNanos / 1e6 / rounds);
+		System.out.printf("speedup %.1fx%n", (double) rebuildNanos / deltaNanos);
+	}
+
+	private static void apply(Network network, String[] edit)
+	{
+		network.setEdge(edit[0], edit[1].equals("R"), edit[2]);
+	}
+}
@@ -0,0 +1,435 @@
+package _2021.day10;
+
+import common.MappedInput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Per-line statistics for a bracket corpus, worked out in one validation pass and kept in columns
+ * (one primitive array per statistic, indexed by line number) so filters run over plain arrays
+ * without validating anything again.
+ *
+ * <p>For every line: where it starts in the file, its maximum nesting depth, the column of the first
+ * illegal character together with the closer that was expected there and the character actually
+ * found, and for incomplete lines how many closers are needed to complete it.
+ *
+ * <pre>
+ * BracketAnalytics stats = BracketAnalytics.build(path);
+ * int[] deepAngles = stats.select(i -> stats.maxDepth(i) > 50 &amp;&amp; stats.found(i) == '&gt;');
+ * stats.write(Path.of("input.brk"));
+ * </pre>
+ *
+ * <p>The file is cut into shards of about 1 MiB at line breaks and the shards are scanned in
+ * parallel, each into its own columns; the columns are then joined in file order. {@link #write}
+ * and {@link #read} store the columns in a memory-mapped binary file so the scan only has to be
+ * done once per corpus.
+ */
+public class BracketAnalytics
+{
+	/** {@link #expected} / {@link #found} value for "no character". */
+	public static final byte NO_CHAR = 0;
+
+	private static final Path INPUT = Path.of("./src/main/java/_2021/day10/input.txt");
+	private static final int SHARD_BYTES = 1 << 20;
+	private static final int MAGIC = 0x42524B31; // "BRK1"
+	private static final int HEADER_BYTES = 16;
+
+	private final int lineCount;
+	private final long[] offset;
+	private final int[] maxDepth;
+	private final int[] errorColumn;
+	private final int[] completionLength;
+	private final byte[] expected;
+	private final byte[] found;
+
+	private BracketAnalytics(int lineCount, long[] offset, int[] maxDepth, int[] errorColumn, int[] completionLength, byte[] expected, byte[] found)
+	{
+		this.lineCount = lineCount;
+		this.offset = offset;
+		this.maxDepth = maxDepth;
+		this.errorColumn = errorColumn;
+		this.completionLength = completionLength;
+		this.expected = expected;
+		this.found = found;
+	}
+
+	public static BracketAnalytics build(Path input) throws IOException
+	{
+		return build(MappedInput.open(input));
+	}
+
+	public static BracketAnalytics build(MappedInput input)
+	{
+		List<Shard> shards = new ArrayList<>();
+		long base = 0;
+		for (ByteBuffer segment : input.segments())
+		{
+			int pos = 0;
+			while (pos < segment.limit())
+			{
+				int end = pos + SHARD_BYTES >= segment.limit() ? segment.limit() : afterLineBreak(segment, pos + SHARD_BYTES);
+				shards.add(new Shard(segment, base, pos, end));
+				pos = end;
+			}
+			base += segment.limit();
+		}
+
+		shards.parallelStream().forEach(Shard::scan);
+
+		int lineCount = 0;
+		for (Shard shard : shards)
+		{
+			lineCount = Math.addExact(lineCount, shard.count);
+		}
+
+		BracketAnalytics result = new BracketAnalytics(lineCount, new long[lineCount], new int[lineCount], new int[lineCount], new int[lineCount], new byte[lineCount], new byte[lineCount]);
+		int row = 0;
+		for (Shard shard : shards)
+		{
+			System.arraycopy(shard.offset, 0, result.offset, row, shard.count);
+			System.arraycopy(shard.maxDepth, 0, result.maxDepth, row, shard.count);
+			System.arraycopy(shard.errorColumn, 0, result.errorColumn, row, shard.count);
+			System.arraycopy(shard.completionLength, 0, result.completionLength, row, shard.count);
+			System.arraycopy(shard.expected, 0, result.expected, row, shard.count);
+			System.arraycopy(shard.found, 0, result.found, row, shard.count);
+			row += shard.count;
+		}
+		return result;
+	}
+
+	public int lineCount()
+	{
+		return lineCount;
+	}
+
+	/**
+	 * Byte offset of the line's first character in the file.
+	 */
+	public long offset(int line)
+	{
+		return offset[line];
+	}
+
+	/**
+	 * Deepest nesting reached, up to the first illegal character if there is one.
+	 */
+	public int maxDepth(int line)
+	{
+		return maxDepth[line];
+	}
+
+	/**
+	 * Column of the first illegal character, or -1 if the line is not corrupted.
+	 */
+	public int errorColumn(int line)
+	{
+		return errorColumn[line];
+	}
+
+	/**
+	 * The closer that would have been legal at {@link #errorColumn}, or {@link #NO_CHAR} if nothing
+	 * was open there (or the line is not corrupted).
+	 */
+	public char expected(int line)
+	{
+		return (char) (expected[line] & 0xFF);
+	}
+
+	/**
+	 * The illegal character at {@link #errorColumn}, or {@link #NO_CHAR}.
+	 */
+	public char found(int line)
+	{
+		return (char) (found[line] & 0xFF);
+	}
+
+	/**
+	 * Closers needed to complete an incomplete line; 0 for complete and corrupted lines.
+	 */
+	public int completionLength(int line)
+	{
+		return completionLength[line];
+	}
+
+	public boolean isCorrupted(int line)
+	{
+		return errorColumn[line] >= 0;
+	}
+
+	public boolean isIncomplete(int line)
+	{
+		return completionLength[line] > 0;
+	}
+
+	/**
+	 * Line numbers (0-based, in order) matching {@code filter}.
+	 */
+	public int[] select(IntPredicate filter)
+	{
+		return IntStream.range(0, lineCount).parallel().filter(filter).toArray();
+	}
+
+	public long count(IntPredicate filter)
+	{
+		return IntStream.range(0, lineCount).parallel().filter(filter).count();
+	}
+
+	/**
+	 * Day 10 part 1 score, from the stored columns.
+	 */
+	public long errorScore()
+	{
+		return IntStream.range(0, lineCount).parallel().filter(this::isCorrupted).mapToLong(i -> score(found(i))).sum();
+	}
+
+	/**
+	 * Writes the columns to {@code path}: a 16 byte header (magic, format version, line count)
+	 * followed by each column in turn.
+	 */
+	public void write(Path path) throws IOException
+	{
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+			header.putInt(MAGIC).putInt(1).putLong(lineCount);
+
+			long pos = HEADER_BYTES;
+			ch.map(FileChannel.MapMode.READ_WRITE, pos, 8L * lineCount).asLongBuffer().put(offset);
+			pos += 8L * lineCount;
+			for (int[] column : new int[][] {maxDepth, errorColumn, completionLength})
+			{
+				ch.map(FileChannel.MapMode.READ_WRITE, pos, 4L * lineCount).asIntBuffer().put(column);
+				pos += 4L * lineCount;
+			}
+			for (byte[] column : new byte[][] {expected, found})
+			{
+				ch.map(FileChannel.MapMode.READ_WRITE, pos, lineCount).put(column);
+				pos += lineCount;
+			}
+		}
+	}
+
+	public static BracketAnalytics read(Path path) throws IOException
+	{
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			if (ch.size() < HEADER_BYTES)
+			{
+				throw new IOException("Not a bracket analytics file: " + path);
+			}
+			MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+			long lines = header.getLong(8);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != 1 || lines < 0 || lines > Integer.MAX_VALUE - 8 || ch.size() != HEADER_BYTES + 22 * lines)
+			{
+				throw new IOException("Not a bracket analytics file: " + path);
+			}
+
+			int n = (int) lines;
+			long[] offset = new long[n];
+			int[][] ints = new int[3][n];
+			byte[][] bytes = new byte[2][n];
+
+			long pos = HEADER_BYTES;
+			ch.map(FileChannel.MapMode.READ_ONLY, pos, 8L * n).asLongBuffer().get(offset);
+			pos += 8L * n;
+			for (int[] column : ints)
+			{
+				ch.map(FileChannel.MapMode.READ_ONLY, pos, 4L * n).asIntBuffer().get(column);
+				pos += 4L * n;
+			}
+			for (byte[] column : bytes)
+			{
+				ch.map(FileChannel.MapMode.READ_ONLY, pos, n).get(column);
+				pos += n;
+			}
+			return new BracketAnalytics(n, offset, ints[0], ints[1], ints[2], bytes[0], bytes[1]);
+		}
+	}
+
+	static int score(char illegal)
+	{
+		int idx = Day10.indexOf(Day10.CLOSE_CHARS, illegal);
+		return idx < 0 ? 0 : Day10.SCORES[idx];
+	}
+
+	private static int afterLineBreak(ByteBuffer buf, int pos)
+	{
+		while (pos < buf.limit() && buf.get(pos) != '\n')
+		{
+			pos++;
+		}
+		return Math.min(pos + 1, buf.limit());
+	}
+
+	/**
+	 * One slice of the file, scanned by one worker into its own growable columns.
+	 */
+	private static class Shard
+	{
+		private final ByteBuffer buf;
+		private final long base;
+		private final int start;
+		private final int end;
+
+		int count;
+		long[] offset;
+		int[] maxDepth;
+		int[] errorColumn;
+		int[] completionLength;
+		byte[] expected;
+		byte[] found;
+		private byte[] stack = new byte[64];
+
+		Shard(ByteBuffer buf, long base, int start, int end)
+		{
+			this.buf = buf;
+			this.base = base;
+			this.start = start;
+			this.end = end;
+		}
+
+		void scan()
+		{
+			int capacity = Math.max(16, (end - start) / 64);
+			offset = new long[capacity];
+			maxDepth = new int[capacity];
+			errorColumn = new int[capacity];
+			completionLength = new int[capacity];
+			expected = new byte[capacity];
+			found = new byte[capacity];
+
+			int pos = start;
+			while (pos < end)
+			{
+				int lineEnd = pos;
+				while (lineEnd < end && buf.get(lineEnd) != '\n')
+				{
+					lineEnd++;
+				}
+				int contentEnd = lineEnd > pos && buf.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+				analyze(pos, contentEnd);
+				pos = lineEnd + 1;
+			}
+		}
+
+		private void analyze(int from, int to)
+		{
+			if (count == offset.length)
+			{
+				grow();
+			}
+
+			int depth = 0;
+			int deepest = 0;
+			int error = -1;
+			byte want = NO_CHAR;
+			byte got = NO_CHAR;
+			for (int i = from; i < to; i++)
+			{
+				byte c = buf.get(i);
+				byte closer = closerFor(c);
+				if (closer != NO_CHAR)
+				{
+					if (depth == stack.length)
+					{
+						stack = Arrays.copyOf(stack, depth * 2);
+					}
+					stack[depth++] = closer;
+					deepest = Math.max(deepest, depth);
+					continue;
+				}
+
+				if (depth == 0 || stack[depth - 1] != c)
+				{
+					error = i - from;
+					want = depth == 0 ? NO_CHAR : stack[depth - 1];
+					got = c;
+					break;
+				}
+				depth--;
+			}
+
+			offset[count] = base + from;
+			maxDepth[count] = deepest;
+			errorColumn[count] = error;
+			completionLength[count] = error < 0 ? depth : 0;
+			expected[count] = want;
+			found[count] = got;
+			count++;
+		}
+
+		private void grow()
+		{
+			int capacity = count * 2;
+			offset = Arrays.copyOf(offset, capacity);
+			maxDepth = Arrays.copyOf(maxDepth, capacity);
+			errorColumn = Arrays.copyOf(errorColumn, capacity);
+			completionLength = Arrays.copyOf(completionLength, capacity);
+			expected = Arrays.copyOf(expected, capacity);
+			found = Arrays.copyOf(found, capacity);
+		}
+
+		private static byte closerFor(byte c)
+		{
+			switch (c)
+			{
+				case '(': return ')';
+				case '[': return ']';
+				case '{': return '}';
+				case '<': return '>';
+				default: return NO_CHAR;
+			}
+		}
+	}
+
+	/**
+	 * Builds (or, given a {@code .brk} file, loads) the statistics and prints a summary.
+	 *
+	 * <pre>
+	 * java _2021.day10.BracketAnalytics [input] [save.brk]
+	 * </pre>
+	 */
+	public static void main(String[] args)
+	{
+		Path input = args.length > 0 ? Path.of(args[0]) : INPUT;
+		try
+		{
+			long start = System.nanoTime();
+			BracketAnalytics stats = input.toString().endsWith(".brk") ? read(input) : build(input);
+			long nanos = System.nanoTime() - start;
+			if (args.length > 1)
+			{
+				stats.write(Path.of(args[1]));
+			}
+
+			System.out.printf("%d lines in %.1f ms%n", stats.lineCount(), nanos / 1e6);
+			System.out.println("Corrupted: " + stats.count(stats::isCorrupted) + ", incomplete: " + stats.count(stats::isIncomplete));
+			System.out.println("Deepest nesting: " + IntStream.range(0, stats.lineCount()).map(stats::maxDepth).max().orElse(0));
+			for (char c : Day10.CLOSE_CHARS)
+			{
+				System.out.println("Errors on '" + c + "': " + stats.count(i -> stats.found(i) == c));
+			}
+			System.out.println("Depth > 50 with a '>' error: " + stats.count(i -> stats.maxDepth(i) > 50 && stats.found(i) == '>'));
+			System.out.println("The answer is " + stats.errorScore());
+		}
+		catch (NoSuchFileException ex)
+		{
+			System.out.println("Error! File not found!");
+		}
+		catch (IOException ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package _2021.day10;
+
+import common.Line;
+import common.MappedInput;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Times validating a generated corpus with and without {@link BracketLineCache}, for increasing
+ * shares of repeated lines. Each corpus is validated three ways: every line checked, sequentially
+ * through the cache, and as a parallel stream through one shared cache. All three must agree.
+ *
+ * <pre>
+ * java _2021.day10.BracketCacheBenchmark [lines] [cacheEntries]
+ * </pre>
+ */
+public class BracketCacheBenchmark
+{
+	private static final double[] DUPLICATE_SHARES = {0, 0.5, 0.9, 0.99, 0.999};
+	private static final ThreadLocal<BracketLineCache.Result> RESULTS = ThreadLocal.withInitial(BracketLineCache.Result::new);
+
+	public static void main(String[] args)
+	{
+		int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int cacheEntries = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 16;
+
+		System.out.printf("%d lines, cache of %d entries, %d threads%n", lines, cacheEntries, Runtime.getRuntime().availableProcessors());
+		System.out.printf("%-10s %10s %10s %10s %10s %9s %8s%n", "repeated", "distinct", "plain ms", "cached ms", "par. ms", "hit rate", "speedup");
+		for (double share : DUPLICATE_SHARES)
+		{
+			ByteBuffer corpus = corpus(lines, share, new Random(10));
+			MappedInput input = MappedInput.wrap(corpus);
+
+			long plain = Long.MAX_VALUE;
+			long cached = Long.MAX_VALUE;
+			long parallel = Long.MAX_VALUE;
+			long expected = 0;
+			double hitRate = 0;
+			for (int round = 0; round < 3; round++)
+			{
+				long start = System.nanoTime();
+				expected = input.lines().mapToLong(line ->
+				{
+					BracketLineCache.Result result = RESULTS.get();
+					BracketLineCache.check(line.buffer(), line.offset(), line.offset() + line.length(), result);
+					return result.score + result.completionScore;
+				}).sum();
+				plain = Math.min(plain, System.nanoTime() - start);
+
+				BracketLineCache cache = new BracketLineCache(cacheEntries);
+				start = System.nanoTime();
+				long total = input.lines().mapToLong(line -> validate(cache, line)).sum();
+				cached = Math.min(cached, System.nanoTime() - start);
+				hitRate = cache.hitRate();
+				check(expected, total, "cached");
+
+				BracketLineCache shared = new BracketLineCache(cacheEntries);
+				start = System.nanoTime();
+				total = input.lines().parallel().mapToLong(line -> validate(shared, line)).sum();
+				parallel = Math.min(parallel, System.nanoTime() - start);
+				check(expected, total, "parallel");
+			}
+
+			System.out.printf("%-10s %10d %10.1f %10.1f %10.1f %8.1f%% %7.1fx%n", share * 100 + "%", distinct(lines, share), plain / 1e6, cached / 1e6, parallel / 1e6, hitRate * 100, (double) plain / cached);
+		}
+	}
+
+	private static long validate(BracketLineCache cache, Line line)
+	{
+		BracketLineCache.Result result = RESULTS.get();
+		cache.validate(line, result);
+		return result.score + result.completionScore;
+	}
+
+	private static void check(long expected, long actual, String what)
+	{
+		if (expected != actual)
+		{
+			throw new IllegalStateException(what + " total " + actual + " != " + expected);
+		}
+	}
+
+	private static int distinct(int lines, double share)
+	{
+		return Math.max(1, (int) Math.round(lines * (1 - share)));
+	}
+
+	/**
+	 * {@code lines} lines of about 100 brackets, of which a share {@code share} repeat an earlier
+	 * line. About half the lines are corrupted.
+	 */
+	private static ByteBuffer corpus(int lines, double share, Random random)
+	{
+		byte[][] pool = new byte[distinct(lines, share)][];
+		for (int i = 0; i < pool.length; i++)
+		{
+			pool[i] = line(random);
+		}
+
+		ByteBuffer out = ByteBuffer.allocate(lines * 130);
+		int next = 0;
+		for (int i = 0; i < lines; i++)
+		{
+			byte[] line = next < pool.length && (next == 0 || random.nextDouble() >= share) ? pool[next++] : pool[random.nextInt(next)];
+			out.put(line).put((byte) '\n');
+		}
+		return out.flip();
+	}
+
+	private static byte[] line(Random random)
+	{
+		byte[] open = {'(', '[', '{', '<'};
+		byte[] close = {')', ']', '}', '>'};
+		byte[] stack = new byte[128];
+		byte[] line = new byte[80 + random.nextInt(40)];
+		int depth = 0;
+		for (int i = 0; i < line.length; i++)
+		{
+			if (depth > 0 && random.nextInt(2) == 0)
+			{
+				line[i] = stack[--depth];
+			}
+			else
+			{
+				int k = random.nextInt(4);
+				line[i] = open[k];
+				stack[depth++] = close[k];
+			}
+		}
+		if (random.nextBoolean())
+		{
+			int at = random.nextInt(line.length);
+			line[at] = close[random.nextInt(4)];
+		}
+		return line;
+	}
+}
@@ -0,0 +1,390 @@
+package _2021.day10;
+
+import common.Line;
+import common.Metrics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the validation result of lines already seen, for corpora where the same lines come up
+ * over and over.
+ *
+ * <p>Lines are keyed by a 64-bit hash of their bytes plus their length, and a hit is only reported
+ * after comparing the bytes, so a hash collision is just a miss. Each segment keeps its own copies of
+ * the lines it holds, one reusable buffer per entry, so entries stay valid when the input's buffers
+ * are refilled (as {@link common.GzipInput}'s are) and don't keep those buffers alive.
+ *
+ * <p>The table is split into 64 segments by the top bits of the hash, each a fixed-size
+ * open-addressing table behind its own lock, so parallel validators rarely wait on each other.
+ * When a segment is full, an entry is evicted with the CLOCK algorithm: entries get a second chance
+ * if they were hit since the hand last passed them. Lookups don't allocate, and inserts only do when
+ * a line is longer than the copy it replaces.
+ *
+ * <pre>
+ * BracketLineCache cache = new BracketLineCache(1 &lt;&lt; 16);
+ * BracketLineCache.Result result = new BracketLineCache.Result();
+ * for (Line line : lines)
+ * {
+ *     cache.validate(line, result);
+ *     errorScore += result.score;
+ * }
+ * </pre>
+ */
+public class BracketLineCache
+{
+	private static final LongAdder HITS = Metrics.counter("day10.cache.hits");
+	private static final LongAdder MISSES = Metrics.counter("day10.cache.misses");
+	private static final int SEGMENT_BITS = 6;
+
+	private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * The outcome of validating one line. Also holds the scratch stack used on a miss, so give each
+	 * thread its own.
+	 */
+	public static class Result
+	{
+		/** Index into {@link Day10#CLOSE_CHARS} of the first illegal character, or -1. */
+		public int illegalIndex;
+		/** Part 1 score of the illegal character, 0 if there is none. */
+		public int score;
+		/** Part 2 score of the characters that complete the line, 0 if it is corrupted or complete. */
+		public long completionScore;
+
+		private byte[] stack = new byte[64];
+	}
+
+	/**
+	 * A cache holding at most about {@code maxEntries} lines.
+	 */
+	public BracketLineCache(int maxEntries)
+	{
+		int perSegment = Math.max(1, (maxEntries + segments.length - 1) / segments.length);
+		for (int i = 0; i < segments.length; i++)
+		{
+			segments[i] = new Segment(perSegment);
+		}
+	}
+
+	public void validate(Line line, Result out)
+	{
+		validate(line.buffer(), line.offset(), line.offset() + line.length(), out);
+	}
+
+	/**
+	 * Validates {@code [from, to)} of {@code buf} into {@code out}, from the cache when the line has
+	 * been seen before.
+	 */
+	public void validate(ByteBuffer buf, int from, int to, Result out)
+	{
+		long hash = hash(buf, from, to);
+		Segment segment = segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+		if (segment.get(hash, buf, from, to - from, out))
+		{
+			hits.increment();
+			if (Metrics.ENABLED)
+			{
+				HITS.increment();
+			}
+			return;
+		}
+
+		misses.increment();
+		if (Metrics.ENABLED)
+		{
+			MISSES.increment();
+		}
+		check(buf, from, to, out);
+		segment.put(hash, buf, from, to - from, out);
+	}
+
+	public long hits()
+	{
+		return hits.sum();
+	}
+
+	public long misses()
+	{
+		return misses.sum();
+	}
+
+	public double hitRate()
+	{
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/**
+	 * Number of lines currently cached.
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (Segment segment : segments)
+		{
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Validates a line without the cache. Same rules as {@link Day10#getIllegalCloseIndex}, working on
+	 * the bytes directly.
+	 */
+	public static void check(ByteBuffer buf, int from, int to, Result out)
+	{
+		byte[] stack = out.stack;
+		int depth = 0;
+		for (int i = from; i < to; i++)
+		{
+			byte c = buf.get(i);
+			byte closer = closerFor(c);
+			if (closer != 0)
+			{
+				if (depth == stack.length)
+				{
+					stack = out.stack = Arrays.copyOf(stack, depth * 2);
+				}
+				stack[depth++] = closer;
+				continue;
+			}
+
+			if (depth == 0 || stack[depth - 1] != c)
+			{
+				out.illegalIndex = Day10.indexOf(Day10.CLOSE_CHARS, (char) (c & 0xFF));
+				out.score = out.illegalIndex < 0 ? 0 : Day10.SCORES[out.illegalIndex];
+				out.completionScore = 0;
+				return;
+			}
+			depth--;
+		}
+
+		long completion = 0;
+		while (depth > 0)
+		{
+			completion = completion * 5 + Day10.indexOf(Day10.CLOSE_CHARS, (char) stack[--depth]) + 1;
+		}
+		out.illegalIndex = -1;
+		out.score = 0;
+		out.completionScore = completion;
+	}
+
+	static long hash(ByteBuffer buf, int from, int to)
+	{
+		long h = 0x9E3779B97F4A7C15L * (to - from + 1);
+		int i = from;
+		for (; i + 8 <= to; i += 8)
+		{
+			h = Long.rotateLeft(h ^ buf.getLong(i) * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+		}
+		long tail = 0;
+		for (; i < to; i++)
+		{
+			tail = tail << 8 | (buf.get(i) & 0xFF);
+		}
+		h = Long.rotateLeft(h ^ tail * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+
+		// murmur3 finalizer, so both the high (segment) and low (slot) bits are well mixed
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static byte closerFor(byte c)
+	{
+		switch (c)
+		{
+			case '(': return ')';
+			case '[': return ']';
+			case '{': return '}';
+			case '<': return '>';
+			default: return 0;
+		}
+	}
+
+	/**
+	 * Whether the first {@code length} bytes of {@code copy} are {@code [bFrom, bFrom + length)} of
+	 * {@code b}. The copy was made in {@code b}'s byte order (lines that hash alike come from buffers
+	 * of the same order), so whole longs can be compared.
+	 */
+	private static boolean sameBytes(ByteBuffer copy, ByteBuffer b, int bFrom, int length)
+	{
+		if (copy.order() != b.order())
+		{
+			return false;
+		}
+		int i = 0;
+		for (; i + 8 <= length; i += 8)
+		{
+			if (copy.getLong(i) != b.getLong(bFrom + i))
+			{
+				return false;
+			}
+		}
+		for (; i < length; i++)
+		{
+			if (copy.get(i) != b.get(bFrom + i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * One lock's worth of the table: linear probing over parallel arrays, kept at most half full. A
+	 * slot refers to one of {@code maxSize} line copies, and the copy of an evicted entry is reused
+	 * for the entry that replaces it.
+	 */
+	private static final class Segment
+	{
+		private static final int EMPTY = -1;
+
+		private final int maxSize;
+		private final int mask;
+		private final long[] hashes;
+		private final int[] lengths;
+		private final int[] copyIndex;
+		private final ByteBuffer[] copies;
+		private final int[] illegal;
+		private final int[] scores;
+		private final long[] completion;
+		private final boolean[] referenced;
+		private int size;
+		private int hand;
+
+		Segment(int maxSize)
+		{
+			this.maxSize = maxSize;
+			int capacity = Integer.highestOneBit(maxSize) << 2;
+			mask = capacity - 1;
+			hashes = new long[capacity];
+			lengths = new int[capacity];
+			copyIndex = new int[capacity];
+			Arrays.fill(copyIndex, EMPTY);
+			copies = new ByteBuffer[maxSize];
+			illegal = new int[capacity];
+			scores = new int[capacity];
+			completion = new long[capacity];
+			referenced = new boolean[capacity];
+		}
+
+		synchronized int size()
+		{
+			return size;
+		}
+
+		synchronized boolean get(long hash, ByteBuffer buf, int from, int length, Result out)
+		{
+			int slot = find(hash, buf, from, length);
+			if (copyIndex[slot] == EMPTY)
+			{
+				return false;
+			}
+			referenced[slot] = true;
+			out.illegalIndex = illegal[slot];
+			out.score = scores[slot];
+			out.completionScore = completion[slot];
+			return true;
+		}
+
+		synchronized void put(long hash, ByteBuffer buf, int from, int length, Result value)
+		{
+			if (copyIndex[find(hash, buf, from, length)] != EMPTY)
+			{
+				// Another thread got there first.
+				return;
+			}
+			// Copies 0..size-1 are in use, except that the one just freed by an eviction is not.
+			int index = size == maxSize ? evict() : size;
+			ByteBuffer copy = copies[index];
+			if (copy == null || copy.capacity() < length)
+			{
+				copy = copies[index] = ByteBuffer.allocate(Integer.highestOneBit(Math.max(length, 16) - 1) << 1);
+			}
+			buf.get(from, copy.array(), 0, length);
+			copy.order(buf.order());
+
+			int slot = find(hash, buf, from, length);
+			hashes[slot] = hash;
+			lengths[slot] = length;
+			copyIndex[slot] = index;
+			illegal[slot] = value.illegalIndex;
+			scores[slot] = value.score;
+			completion[slot] = value.completionScore;
+			referenced[slot] = false;
+			size++;
+		}
+
+		/**
+		 * The slot holding this line, or the empty slot where it would go.
+		 */
+		private int find(long hash, ByteBuffer buf, int from, int length)
+		{
+			int slot = (int) hash & mask;
+			while (copyIndex[slot] != EMPTY && !(hashes[slot] == hash && lengths[slot] == length && sameBytes(copies[copyIndex[slot]], buf, from, length)))
+			{
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		/**
+		 * Removes an entry and returns the index of its now unused copy.
+		 */
+		private int evict()
+		{
+			while (true)
+			{
+				int slot = hand;
+				hand = (hand + 1) & mask;
+				if (copyIndex[slot] == EMPTY)
+				{
+					continue;
+				}
+				if (referenced[slot])
+				{
+					referenced[slot] = false;
+					continue;
+				}
+				int index = copyIndex[slot];
+				remove(slot);
+				return index;
+			}
+		}
+
+		/**
+		 * Empties a slot, shifting later entries of the same probe run back so lookups still find
+		 * them (no tombstones).
+		 */
+		private void remove(int slot)
+		{
+			int gap = slot;
+			for (int i = (gap + 1) & mask; copyIndex[i] != EMPTY; i = (i + 1) & mask)
+			{
+				int home = (int) hashes[i] & mask;
+				if (((i - home) & mask) >= ((i - gap) & mask))
+				{
+					hashes[gap] = hashes[i];
+					lengths[gap] = lengths[i];
+					copyIndex[gap] = copyIndex[i];
+					illegal[gap] = illegal[i];
+					scores[gap] = scores[i];
+					completion[gap] = completion[i];
+					referenced[gap] = referenced[i];
+					gap = i;
+				}
+			}
+			copyIndex[gap] = EMPTY;
+			size--;
+		}
+	}
+}
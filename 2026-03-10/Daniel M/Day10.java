@@ -1,48 +1,90 @@
 package _2021.day10;
 
-import java.util.Scanner;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
+import common.LatencyHistogram;
+import common.Line;
+import common.LineSource;
+import common.Metrics;
+import common.ResultCache;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Day10
 {
-	public static ArrayList<String> chunks = new ArrayList<String>();
-	public static int errorScore = 0;
+	public static long errorScore = 0;
 	public static final char[] OPEN_CHARS = {'(', '[', '{', '<'};
 	public static final char[] CLOSE_CHARS = {')', ']', '}', '>'};
 	public static final int[] SCORES = {3, 57, 1197, 25137};
+	private static final Path INPUT = Path.of("./src/main/java/_2021/day10/input.txt");
+	//private static final Path INPUT = Path.of("./src/main/java/_2021/day10/input_test.txt");
+	private static final LongAdder LINES = Metrics.counter("day10.lines");
+	private static final LongAdder BYTES = Metrics.counter("day10.bytes");
+	private static final LatencyHistogram LINE_NANOS = Metrics.histogram("day10.lineNanos");
+	// Lines to remember between repeats (see BracketLineCache); 0 validates every line.
+	private static final int CACHE_ENTRIES = Integer.getInteger("club.day10.cacheEntries", 0);
 	
 	public static void main(String[] args)
 	{
-		try (Scanner input = new Scanner(new File("./src/main/java/_2021/day10/input.txt")))
-		//try (Scanner input = new Scanner(new File("./src/main/java/_2021/day10/input_test.txt")))
+		Metrics.start();
+		try
 		{
-			while(input.hasNextLine())
-			{
-				String line = input.nextLine();
-				
-				chunks.add(line);
-			}
-			
-			for(String chunk : chunks)
+			String answer = ResultCache.shared().get(INPUT, ResultCache.fingerprint(Day10.class, BracketLineCache.class), Day10::solve);
+			System.out.println("The answer is " + answer);
+		}
+		catch (NoSuchFileException ex)
+		{
+			System.out.println("Error! File not found!");
+		}
+		catch (IOException ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+	
+	public static String solve(Path input) throws IOException
+	{
+		errorScore = 0;
+		BracketLineCache cache = CACHE_ENTRIES > 0 ? new BracketLineCache(CACHE_ENTRIES) : null;
+		BracketLineCache.Result result = new BracketLineCache.Result();
+		
+		try (LineSource lines = LineSource.open(input))
+		{
+			for(Line chunk : lines)
 			{
-			    int illegalIdx = getIllegalCloseIndex(chunk);
-			    if (illegalIdx >= 0)
+			    long start = Metrics.ENABLED ? System.nanoTime() : 0;
+			    
+			    if (cache != null)
+			    {
+			        cache.validate(chunk, result);
+			        errorScore += result.score;
+			    }
+			    else
 			    {
-			        errorScore += SCORES[illegalIdx];
+			        int illegalIdx = getIllegalCloseIndex(chunk);
+			        if (illegalIdx >= 0)
+			        {
+			            errorScore += SCORES[illegalIdx];
+			        }
+			    }
+			    
+			    if (Metrics.ENABLED)
+			    {
+			        LINE_NANOS.record(System.nanoTime() - start);
+			        LINES.increment();
+			        // Line drops the \r of a CRLF ending; count it along with the \n.
+			        int end = chunk.offset() + chunk.length();
+			        boolean crlf = end < chunk.buffer().limit() && chunk.buffer().get(end) == '\r';
+			        BYTES.add(chunk.length() + (crlf ? 2 : 1));
 			    }
 			}
-			
-			System.out.println("The answer is " + errorScore);
-		}
-		catch (FileNotFoundException ex)
-		{
-			System.out.println("Error! File not found!");
 		}
+		
+		return String.valueOf(errorScore);
 	}
 	
-	public static int getIllegalCloseIndex(String line)
+	public static int getIllegalCloseIndex(CharSequence line)
 	{
 	    StringBuilder stack = new StringBuilder();
 	    
@@ -1,18 +1,24 @@
-import java.io.File;
+import common.Line;
+import common.MappedInput;
+import common.Metrics;
+import common.RateLimitedLog;
+
 import java.io.FileWriter;
+import java.nio.file.Path;
 import java.util.Stack;
-import java.util.Scanner;
+import java.util.concurrent.atomic.LongAdder;
 
 public class App {
 
+    private static final RateLimitedLog STACK_LOG = new RateLimitedLog(10000, 5);
+    private static final LongAdder LINES = Metrics.counter("app.lines");
    
     public static void main(String[] args) {
+        Metrics.start();
         
         try {
-        Scanner scanner = new Scanner(new File("src\\strings.txt"));
         int score = 0;
-        while (scanner.hasNext()) {
-            String line = scanner.nextLine();
+        for (Line line : MappedInput.open(Path.of("src\\strings.txt"))) {
             
 
            /*  // check for non - corrupted line 
@@ -32,7 +38,7 @@ public class App {
                 if (isOpenBracket(c)) {
                     bracketStack.push(c);
                 } else if (!bracketStack.isEmpty()) {
-                    System.out.println(bracketStack);
+                    STACK_LOG.log(bracketStack::toString);
                     char openCharacter = bracketStack.pop();
                     if (!matches(openCharacter, c)) {
                         switch (c) {
@@ -53,6 +59,9 @@ public class App {
                     }
                 }
             }
+            if (Metrics.ENABLED) {
+                LINES.increment();
+            }
         
 
 
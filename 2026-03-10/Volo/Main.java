@@ -1,26 +1,36 @@
+import common.Line;
+import common.MappedInput;
+import common.RateLimitedLog;
+
 private static final File INPUT_FILE = new File("2026-03-10/input.txt");
+private static final RateLimitedLog LINE_LOG = new RateLimitedLog(1000, 5);
+private static final RateLimitedLog MISMATCH_LOG = new RateLimitedLog(1000, 5);
 
-void main() throws FileNotFoundException {
-    Scanner sc = new Scanner(INPUT_FILE);
+void main() throws IOException {
     int i = 0;
-    while (sc.hasNextLine()) {
-        String line = sc.nextLine();
-        IO.println("Processing line: " + line);
-        i += getLineValue(line);
-        IO.println("Line value: " + getLineValue(line));
+    for (Line line : MappedInput.open(INPUT_FILE.toPath())) {
+        int value = getLineValue(line);
+        i += value;
+        if (LINE_LOG.shouldLog()) {
+            IO.println("Processing line: " + line);
+            IO.println("Line value: " + value);
+        }
     }
     IO.println(i);
 }
 
-private static int getLineValue(String s) {
+private static int getLineValue(CharSequence s) {
     Stack<Character> chars = new Stack<>();
-    for (char c : s.toCharArray()) {
+    for (int j = 0; j < s.length(); j++) {
+        char c = s.charAt(j);
         if (c == '(' || c == '[' || c == '{' || c == '<') {
             chars.push(c);
         } else {
             char top = chars.pop();
             if (c != getClosed(top)) {
-                IO.println("Expected " + getClosed(top) + " but found " + c + " + " + getPoints(c));
+                if (MISMATCH_LOG.shouldLog()) {
+                    IO.println("Expected " + getClosed(top) + " but found " + c + " + " + getPoints(c));
+                }
                 return getPoints(c);
             }
         }
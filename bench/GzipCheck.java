@@ -0,0 +1,282 @@
+package bench;
+
+import common.GzipInput;
+import common.Line;
+import common.LineSource;
+import common.MappedInput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Checks {@link GzipInput} against the uncompressed bytes: the lines it yields must be exactly the
+ * lines {@link MappedInput} reads from the plain text. Covers a single gzip member, several members
+ * cut mid-line, a member with a name, comment and header CRC, BGZF blocks (on one thread and on
+ * several), CRLF line ends, a missing final newline, a line longer than the inflate buffer and an
+ * empty file. Exits with status 1 on any difference.
+ *
+ * <pre>
+ * java bench.GzipCheck
+ * </pre>
+ */
+public class GzipCheck
+{
+	private static final int BGZF_BLOCK = 60_000;
+
+	private static boolean failed;
+
+	public static void main(String[] args) throws IOException
+	{
+		Random random = new Random(28);
+		byte[] text = text(random, 200_000, "\n", true);
+		byte[] crlf = text(random, 50_000, "\r\n", true);
+		byte[] unterminated = text(random, 50_000, "\n", false);
+		ByteArrayOutputStream longLine = new ByteArrayOutputStream();
+		longLine.write(text(random, 1000, "\n", true));
+		longLine.write("(".repeat(3 << 20).getBytes(StandardCharsets.ISO_8859_1));
+		longLine.write('\n');
+		longLine.write(text(random, 1000, "\n", true));
+
+		Path dir = Files.createTempDirectory("gzip-check");
+		try
+		{
+			check(dir, "single member", text, gzip(text));
+			check(dir, "members cut mid-line", text, members(text, random));
+			check(dir, "name, comment and header CRC", text, gzipWithHeaderFields(text));
+			check(dir, "BGZF", text, bgzf(text));
+			check(dir, "CRLF", crlf, gzip(crlf));
+			check(dir, "CRLF as BGZF", crlf, bgzf(crlf));
+			check(dir, "no final newline", unterminated, gzip(unterminated));
+			check(dir, "no final newline as BGZF", unterminated, bgzf(unterminated));
+			check(dir, "3 MiB line", longLine.toByteArray(), gzip(longLine.toByteArray()));
+			check(dir, "3 MiB line as BGZF", longLine.toByteArray(), bgzf(longLine.toByteArray()));
+			check(dir, "empty", new byte[0], gzip(new byte[0]));
+		}
+		finally
+		{
+			try (Stream<Path> files = Files.walk(dir))
+			{
+				files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+
+		System.out.println(failed ? "FAILED" : "All inputs match");
+		if (failed)
+		{
+			System.exit(1);
+		}
+	}
+
+	private static void check(Path dir, String name, byte[] plain, byte[] compressed) throws IOException
+	{
+		Path file = dir.resolve(name.replace(' ', '-') + ".gz");
+		Files.write(file, compressed);
+		List<String> expected = lines(MappedInput.wrap(ByteBuffer.wrap(plain)));
+
+		for (int threads : new int[] {1, 4})
+		{
+			List<String> actual;
+			try (GzipInput input = GzipInput.open(file, threads))
+			{
+				actual = lines(input);
+			}
+			catch (IOException | RuntimeException e)
+			{
+				System.out.println("  FAILED: " + name + " on " + threads + " thread(s): " + e);
+				failed = true;
+				continue;
+			}
+			compare(name + " on " + threads + " thread(s)", expected, actual);
+		}
+
+		try (LineSource input = LineSource.open(file))
+		{
+			compare(name + " through LineSource.open", expected, lines(input));
+		}
+		System.out.printf("%-30s %8d bytes, %7d lines%n", name, plain.length, expected.size());
+	}
+
+	private static void compare(String what, List<String> expected, List<String> actual)
+	{
+		if (actual.equals(expected))
+		{
+			return;
+		}
+		int i = 0;
+		while (i < expected.size() && i < actual.size() && expected.get(i).equals(actual.get(i)))
+		{
+			i++;
+		}
+		System.out.println("  FAILED: " + what + ": " + actual.size() + " lines instead of " + expected.size() + ", first difference at line " + i);
+		failed = true;
+	}
+
+	private static List<String> lines(Iterable<Line> source)
+	{
+		List<String> lines = new ArrayList<>();
+		for (Line line : source)
+		{
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+
+	/**
+	 * {@code count} bracket and number lines of varying length, including some blank ones.
+	 */
+	private static byte[] text(Random random, int count, String lineEnd, boolean finalLineEnd)
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++)
+		{
+			if (random.nextInt(10) == 0)
+			{
+				// Blank line.
+			}
+			else if (random.nextBoolean())
+			{
+				text.append(1000 + random.nextInt(59_000));
+			}
+			else
+			{
+				for (int j = 20 + random.nextInt(100); j > 0; j--)
+				{
+					text.append("()[]{}<>".charAt(random.nextInt(8)));
+				}
+			}
+			if (i < count - 1 || finalLineEnd)
+			{
+				text.append(lineEnd);
+			}
+		}
+		return text.toString().getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static byte[] gzip(byte[] plain) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gz = new GZIPOutputStream(out))
+		{
+			gz.write(plain);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Several gzip members back to back, split at random byte offsets, as {@code cat a.gz b.gz}
+	 * gives.
+	 */
+	private static byte[] members(byte[] plain, Random random) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int from = 0;
+		while (from < plain.length)
+		{
+			int to = Math.min(plain.length, from + 1 + random.nextInt(plain.length / 4));
+			out.write(gzip(Arrays.copyOfRange(plain, from, to)));
+			from = to;
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * One member whose header carries FNAME, FCOMMENT and FHCRC, which GZIPOutputStream never
+	 * writes.
+	 */
+	private static byte[] gzipWithHeaderFields(byte[] plain) throws IOException
+	{
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		header.write(new byte[] {0x1f, (byte) 0x8b, 8, 2 | 8 | 16, 0, 0, 0, 0, 0, (byte) 0xff});
+		header.write("input.txt\0".getBytes(StandardCharsets.ISO_8859_1));
+		header.write("archived input\0".getBytes(StandardCharsets.ISO_8859_1));
+		CRC32 headerCrc = new CRC32();
+		headerCrc.update(header.toByteArray());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		header.writeTo(out);
+		writeShort(out, (int) headerCrc.getValue());
+		out.write(deflate(plain, 0, plain.length));
+		writeTrailer(out, plain, 0, plain.length);
+		return out.toByteArray();
+	}
+
+	/**
+	 * BGZF as written by {@code bgzip}: members of at most 64 KiB each, with the member's size in a
+	 * {@code BC} extra field, and an empty member at the end.
+	 */
+	private static byte[] bgzf(byte[] plain) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int from = 0;
+		do
+		{
+			int to = Math.min(plain.length, from + BGZF_BLOCK);
+			bgzfBlock(out, plain, from, to);
+			from = to;
+		}
+		while (from < plain.length);
+		bgzfBlock(out, plain, 0, 0);
+		return out.toByteArray();
+	}
+
+	private static void bgzfBlock(ByteArrayOutputStream out, byte[] plain, int from, int to) throws IOException
+	{
+		byte[] deflated = deflate(plain, from, to);
+		out.write(new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff});
+		writeShort(out, 6);
+		out.write(new byte[] {'B', 'C'});
+		writeShort(out, 2);
+		// Whole member size minus one: 18 header bytes, the data and 8 trailer bytes.
+		writeShort(out, 18 + deflated.length + 8 - 1);
+		out.write(deflated);
+		writeTrailer(out, plain, from, to);
+	}
+
+	private static byte[] deflate(byte[] plain, int from, int to)
+	{
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(plain, from, to - from);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[1 << 16];
+		while (!deflater.finished())
+		{
+			out.write(buf, 0, deflater.deflate(buf));
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	private static void writeTrailer(ByteArrayOutputStream out, byte[] plain, int from, int to)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(plain, from, to - from);
+		writeInt(out, (int) crc.getValue());
+		writeInt(out, to - from);
+	}
+
+	private static void writeShort(ByteArrayOutputStream out, int value)
+	{
+		out.write(value & 0xFF);
+		out.write((value >>> 8) & 0xFF);
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, int value)
+	{
+		writeShort(out, value & 0xFFFF);
+		writeShort(out, value >>> 16);
+	}
+}
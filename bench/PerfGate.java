@@ -0,0 +1,350 @@
+package bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Performance regression gate for the Java solvers.
+ *
+ * <p>Runs each solver on generated inputs (see {@link PerfInputs}), measures input throughput and
+ * bytes allocated per run, and compares them against the committed {@code bench/baselines.json}.
+ * Exits with status 1 if any solver is slower or allocates more than the tolerance allows.
+ *
+ * <pre>
+ * bench/perf-gate.sh                    compare against the baseline
+ * bench/perf-gate.sh --update           re-record the baseline on this machine
+ * bench/perf-gate.sh --tolerance=0.2    allow 20% lower throughput (default 30%)
+ * bench/perf-gate.sh --alloc-tolerance=0.05
+ * bench/perf-gate.sh --references       also check answers against the Python/JS "- Main" solutions
+ * bench/perf-gate.sh --input-mb=64      size of each generated input (default 32, or -Dperf.inputMb)
+ * </pre>
+ */
+public class PerfGate
+{
+	private static final Path BASELINE = Path.of("bench/baselines.json");
+	private static final Pattern ENTRY = Pattern.compile("\"(\\w+)\"\\s*:\\s*\\{\\s*\"mbPerSec\"\\s*:\\s*([0-9.eE+-]+)\\s*,\\s*\"allocatedBytes\"\\s*:\\s*(-?[0-9]+)\\s*\\}");
+	private static final Pattern INPUT_MB = Pattern.compile("\"inputMb\"\\s*:\\s*([0-9]+)");
+	private static final Pattern LAST_NUMBER = Pattern.compile("(-?\\d+)\\D*$");
+
+	private static final int REFERENCE_TIMEOUT_MINUTES = 10;
+	private static final int WARMUP = 2;
+	private static final int RUNS = 9;
+	// Each timed run repeats the solver until this much time has passed, so that small inputs (the
+	// Day8 network is a few hundred KB) are timed over as long a stretch as the large ones.
+	private static final long MIN_RUN_NANOS = 1_000_000_000L;
+
+	interface Solver
+	{
+		String solve(Path input) throws IOException;
+	}
+
+	static final class Result
+	{
+		final double mbPerSec;
+		final long allocatedBytes;
+		final String answer;
+
+		Result(double mbPerSec, long allocatedBytes, String answer)
+		{
+			this.mbPerSec = mbPerSec;
+			this.allocatedBytes = allocatedBytes;
+			this.answer = answer;
+		}
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		boolean update = false;
+		boolean references = false;
+		double tolerance = 0.30;
+		double allocTolerance = 0.10;
+		Path baselinePath = BASELINE;
+		int inputMb = Integer.getInteger("perf.inputMb", 32);
+
+		for (String arg : args)
+		{
+			if (arg.equals("--update"))
+			{
+				update = true;
+			}
+			else if (arg.equals("--references"))
+			{
+				references = true;
+			}
+			else if (arg.startsWith("--tolerance="))
+			{
+				tolerance = Double.parseDouble(arg.substring("--tolerance=".length()));
+			}
+			else if (arg.startsWith("--alloc-tolerance="))
+			{
+				allocTolerance = Double.parseDouble(arg.substring("--alloc-tolerance=".length()));
+			}
+			else if (arg.startsWith("--input-mb="))
+			{
+				inputMb = Integer.parseInt(arg.substring("--input-mb=".length()));
+			}
+			else if (arg.startsWith("--baseline="))
+			{
+				baselinePath = Path.of(arg.substring("--baseline=".length()));
+			}
+			else
+			{
+				System.err.println("Unknown option " + arg + (arg.startsWith("-D") ? " (JVM options go in JAVA_OPTS)" : ""));
+				System.exit(2);
+			}
+		}
+
+		// Exit only after the finally block has removed the temporary inputs.
+		int status = 0;
+		Path dir = Files.createTempDirectory("perf-gate");
+		try
+		{
+			Path calories = dir.resolve("calories.txt");
+			Path brackets = dir.resolve("brackets.txt");
+			Path network = dir.resolve("network.txt");
+			PerfInputs.calories(calories, inputMb * (1L << 20));
+			PerfInputs.brackets(brackets, inputMb * (1L << 20));
+			PerfInputs.network(network, 283);
+
+			Map<String, Result> current = new LinkedHashMap<>();
+			current.put("Day1", measure(_2022.day01.Day1::solve, calories));
+			current.put("Day1Part2", measure(_2022.day01.Day1Part2::solve, calories));
+			current.put("Day8", measure(_2023.day08.Day8::solve, network));
+			current.put("Day10", measure(_2021.day10.Day10::solve, brackets));
+
+			boolean failed = false;
+			if (references)
+			{
+				failed |= checkReferences(dir, current, calories, brackets);
+			}
+
+			if (update)
+			{
+				write(baselinePath, inputMb, current);
+				System.out.println("Wrote " + baselinePath);
+				return;
+			}
+
+			String json = Files.readString(baselinePath);
+			Matcher mb = INPUT_MB.matcher(json);
+			if (mb.find() && Integer.parseInt(mb.group(1)) != inputMb)
+			{
+				System.out.println("Warning: baseline was recorded with --input-mb=" + mb.group(1) + ", this run used " + inputMb);
+			}
+
+			failed |= compare(read(json), current, tolerance, allocTolerance);
+			status = failed ? 1 : 0;
+		}
+		finally
+		{
+			try (Stream<Path> files = Files.walk(dir))
+			{
+				files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+		if (status != 0)
+		{
+			System.exit(status);
+		}
+	}
+
+	/**
+	 * Median throughput of {@value #RUNS} timed runs after {@value #WARMUP} warm-up runs, and the
+	 * smallest allocation per solve seen, both measured on the calling thread. A run solves the
+	 * input as many times as fit in {@link #MIN_RUN_NANOS} (at least once).
+	 */
+	static Result measure(Solver solver, Path input) throws IOException
+	{
+		double mb = Files.size(input) / (double) (1 << 20);
+		String answer = null;
+		for (int i = 0; i < WARMUP; i++)
+		{
+			answer = solver.solve(input);
+		}
+
+		double[] mbPerSec = new double[RUNS];
+		long leastAllocated = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++)
+		{
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+			long nanos;
+			int solves = 0;
+			do
+			{
+				String again = solver.solve(input);
+				if (!again.equals(answer))
+				{
+					throw new IllegalStateException("Solver gave " + again + " after " + answer + " on the same input");
+				}
+				solves++;
+				nanos = System.nanoTime() - start;
+			}
+			while (nanos < MIN_RUN_NANOS);
+			long allocated = allocatedBytes() - allocatedBefore;
+
+			mbPerSec[i] = mb * solves / (nanos / 1e9);
+			leastAllocated = Math.min(leastAllocated, allocated / solves);
+		}
+
+		Arrays.sort(mbPerSec);
+		return new Result(mbPerSec[RUNS / 2], allocatedBytes() < 0 ? -1 : leastAllocated, answer);
+	}
+
+	/**
+	 * Prints the diff table and returns true if any solver regressed.
+	 */
+	static boolean compare(Map<String, Result> baseline, Map<String, Result> current, double tolerance, double allocTolerance)
+	{
+		System.out.printf("%-10s %12s %12s %8s %14s %14s %8s  %s%n", "solver", "base MB/s", "MB/s", "diff", "base alloc", "alloc", "diff", "status");
+
+		boolean failed = false;
+		for (Map.Entry<String, Result> e : current.entrySet())
+		{
+			Result now = e.getValue();
+			Result base = baseline.get(e.getKey());
+			if (base == null)
+			{
+				System.out.printf("%-10s %12s %12.1f %8s %14s %14d %8s  %s%n", e.getKey(), "-", now.mbPerSec, "-", "-", now.allocatedBytes, "-", "NEW");
+				continue;
+			}
+
+			double speed = now.mbPerSec / base.mbPerSec - 1;
+			double alloc = base.allocatedBytes <= 0 || now.allocatedBytes < 0 ? 0 : (double) now.allocatedBytes / base.allocatedBytes - 1;
+			List<String> problems = new ArrayList<>();
+			if (speed < -tolerance)
+			{
+				problems.add("SLOWER");
+			}
+			if (alloc > allocTolerance)
+			{
+				problems.add("ALLOCATES MORE");
+			}
+			failed |= !problems.isEmpty();
+
+			System.out.printf("%-10s %12.1f %12.1f %+7.1f%% %14d %14d %+7.1f%%  %s%n", e.getKey(), base.mbPerSec, now.mbPerSec, speed * 100,
+					base.allocatedBytes, now.allocatedBytes, alloc * 100, problems.isEmpty() ? "ok" : String.join(", ", problems));
+		}
+
+		System.out.printf("Tolerance: throughput -%.0f%%, allocation +%.0f%%%n", tolerance * 100, allocTolerance * 100);
+		return failed;
+	}
+
+	/**
+	 * Runs the Python/JavaScript solutions from the "- Main" folders on the same inputs, where the
+	 * interpreter is installed, and returns true if any of them disagrees with the Java answer.
+	 */
+	static boolean checkReferences(Path dir, Map<String, Result> current, Path calories, Path brackets) throws IOException, InterruptedException
+	{
+		String[][] references = {
+			{"Day1", "node", "2026-02-03/Logan L - Main/solution.js"},
+			{"Day10", "python3", "2026-03-10/Logan L - Main/day10.py"},
+			{"Day10", "node", "2026-03-10/Logan L - Main/day10.js"},
+		};
+
+		boolean failed = false;
+		System.out.printf("%-10s %-45s %12s %12s %10s  %s%n", "solver", "reference", "java", "reference", "seconds", "status");
+		for (String[] ref : references)
+		{
+			String solver = ref[0];
+			if (!current.containsKey(solver))
+			{
+				continue;
+			}
+			Path script = Path.of(ref[2]).toAbsolutePath();
+			Path work = Files.createDirectories(dir.resolve("ref-" + script.getFileName()));
+			Files.copy(solver.equals("Day1") ? calories : brackets, work.resolve("input.txt"));
+
+			String expected = current.get(solver).answer;
+			// Output goes to a file rather than a pipe, so waiting for the process can time out.
+			Path outputFile = work.resolve("output.txt");
+			ProcessBuilder pb = new ProcessBuilder(ref[1], script.toString()).directory(work.toFile()).redirectErrorStream(true).redirectOutput(outputFile.toFile());
+			long start = System.nanoTime();
+			Process process;
+			try
+			{
+				process = pb.start();
+			}
+			catch (IOException e)
+			{
+				System.out.printf("%-10s %-45s %12s %12s %10s  %s%n", solver, ref[2], expected, "-", "-", "skipped (no " + ref[1] + ")");
+				continue;
+			}
+			if (!process.waitFor(REFERENCE_TIMEOUT_MINUTES, TimeUnit.MINUTES))
+			{
+				process.destroyForcibly().waitFor();
+				System.out.printf("%-10s %-45s %12s %12s %10s  %s%n", solver, ref[2], expected, "-", "-", "reference timed out after " + REFERENCE_TIMEOUT_MINUTES + " minutes");
+				continue;
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			String output = Files.readString(outputFile, StandardCharsets.UTF_8).trim();
+
+			if (process.exitValue() != 0)
+			{
+				// e.g. Math.max(...elves) overflowing node's stack on a large input.
+				System.out.printf("%-10s %-45s %12s %12s %10.2f  %s%n", solver, ref[2], expected, "-", seconds, "reference failed (exit " + process.exitValue() + ")");
+				continue;
+			}
+
+			Matcher m = LAST_NUMBER.matcher(output);
+			String answer = m.find() ? m.group(1) : output;
+			boolean ok = answer.equals(expected);
+			failed |= !ok;
+			System.out.printf("%-10s %-45s %12s %12s %10.2f  %s%n", solver, ref[2], expected, answer, seconds, ok ? "ok" : "MISMATCH");
+		}
+		return failed;
+	}
+
+	static Map<String, Result> read(String json)
+	{
+		Map<String, Result> results = new LinkedHashMap<>();
+		Matcher m = ENTRY.matcher(json);
+		while (m.find())
+		{
+			results.put(m.group(1), new Result(Double.parseDouble(m.group(2)), Long.parseLong(m.group(3)), null));
+		}
+		return results;
+	}
+
+	static void write(Path path, int inputMb, Map<String, Result> results) throws IOException
+	{
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"inputMb\": ").append(inputMb).append(",\n");
+		json.append("  \"javaVersion\": \"").append(System.getProperty("java.version")).append("\",\n");
+		json.append("  \"solvers\": {\n");
+		int i = 0;
+		for (Map.Entry<String, Result> e : results.entrySet())
+		{
+			json.append(String.format(Locale.ROOT, "    \"%s\": {\"mbPerSec\": %.2f, \"allocatedBytes\": %d}", e.getKey(), e.getValue().mbPerSec, e.getValue().allocatedBytes));
+			json.append(++i < results.size() ? ",\n" : "\n");
+		}
+		json.append("  }\n");
+		json.append("}\n");
+		Files.writeString(path, json);
+	}
+
+	private static long allocatedBytes()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+		{
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,168 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic large inputs in the same formats as the meeting puzzles. A fixed seed means every
+ * run (and every machine) benchmarks exactly the same bytes.
+ */
+public class PerfInputs
+{
+	private static final long SEED = 20260203L;
+	private static final char[] OPEN = {'(', '[', '{', '<'};
+	private static final char[] CLOSE = {')', ']', '}', '>'};
+
+	/**
+	 * Calorie groups (2026-02-03): one number per line, groups separated by blank lines.
+	 */
+	public static void calories(Path out, long bytes) throws IOException
+	{
+		Random random = new Random(SEED);
+		long written = 0;
+		try (BufferedWriter w = Files.newBufferedWriter(out))
+		{
+			while (written < bytes)
+			{
+				int items = 1 + random.nextInt(15);
+				for (int i = 0; i < items; i++)
+				{
+					String n = Integer.toString(1000 + random.nextInt(59000));
+					w.write(n);
+					w.write('\n');
+					written += n.length() + 1;
+				}
+				w.write('\n');
+				written++;
+			}
+		}
+	}
+
+	/**
+	 * Bracket lines (2026-03-10): balanced lines, some with a wrong closer swapped in and some cut
+	 * short, so every branch of a validator is exercised.
+	 */
+	public static void brackets(Path out, long bytes) throws IOException
+	{
+		Random random = new Random(SEED);
+		StringBuilder line = new StringBuilder(256);
+		StringBuilder stack = new StringBuilder(256);
+		long written = 0;
+		try (BufferedWriter w = Files.newBufferedWriter(out))
+		{
+			while (written < bytes)
+			{
+				line.setLength(0);
+				stack.setLength(0);
+				int length = 80 + random.nextInt(40);
+				while (line.length() < length)
+				{
+					if (stack.length() == 0 || random.nextInt(100) < 55)
+					{
+						int k = random.nextInt(4);
+						line.append(OPEN[k]);
+						stack.append(CLOSE[k]);
+					}
+					else
+					{
+						line.append(stack.charAt(stack.length() - 1));
+						stack.setLength(stack.length() - 1);
+					}
+				}
+
+				int kind = random.nextInt(10);
+				if (kind < 5)
+				{
+					// Corrupt: replace one closer with a different closer.
+					for (int i = line.length() / 2; i < line.length(); i++)
+					{
+						int k = indexOf(CLOSE, line.charAt(i));
+						if (k >= 0)
+						{
+							line.setCharAt(i, CLOSE[(k + 1 + random.nextInt(3)) % 4]);
+							break;
+						}
+					}
+				}
+				else if (kind < 8)
+				{
+					// Complete: close everything still open.
+					line.append(stack.reverse());
+				}
+				// Otherwise leave it incomplete.
+
+				w.append(line).append('\n');
+				written += line.length() + 1;
+			}
+		}
+	}
+
+	/**
+	 * A 2023 day 8 network over all 17576 three-letter names, listed in shuffled order. Every left
+	 * and right edge leads further along a chain from AAA to ZZZ, so the walk always ends.
+	 */
+	public static void network(Path out, int instructionCount) throws IOException
+	{
+		Random random = new Random(SEED);
+		List<String> names = new ArrayList<>();
+		for (char a = 'A'; a <= 'Z'; a++)
+		{
+			for (char b = 'A'; b <= 'Z'; b++)
+			{
+				for (char c = 'A'; c <= 'Z'; c++)
+				{
+					names.add("" + a + b + c);
+				}
+			}
+		}
+		names.remove("AAA");
+		names.remove("ZZZ");
+		Collections.shuffle(names, random);
+		names.add(0, "AAA");
+		names.add("ZZZ");
+
+		int last = names.size() - 1;
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i <= last; i++)
+		{
+			int near = Math.min(i + 1, last);
+			int far = Math.min(i + 1 + random.nextInt(3), last);
+			String left = random.nextBoolean() ? names.get(near) : names.get(far);
+			String right = left.equals(names.get(near)) ? names.get(far) : names.get(near);
+			lines.add(names.get(i) + " = (" + left + ", " + right + ")");
+		}
+		Collections.shuffle(lines, random);
+
+		try (BufferedWriter w = Files.newBufferedWriter(out))
+		{
+			for (int i = 0; i < instructionCount; i++)
+			{
+				w.write(random.nextBoolean() ? 'L' : 'R');
+			}
+			w.write("\n\n");
+			for (String line : lines)
+			{
+				w.write(line);
+				w.write('\n');
+			}
+		}
+	}
+
+	private static int indexOf(char[] array, char c)
+	{
+		for (int i = 0; i < array.length; i++)
+		{
+			if (array[i] == c)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Checks the Day10 answer on one large generated input (default 100 MB, past the point where an
+ * {@code int} score overflows) against {@code BracketAnalytics} and the Python/JS "- Main"
+ * solutions. Exits with status 1 on any mismatch.
+ *
+ * <pre>
+ * bench/reference-check.sh                  100 MB
+ * bench/reference-check.sh --input-mb=200
+ * </pre>
+ */
+public class ReferenceCheck
+{
+	public static void main(String[] args) throws Exception
+	{
+		int inputMb = 100;
+		for (String arg : args)
+		{
+			if (arg.startsWith("--input-mb="))
+			{
+				inputMb = Integer.parseInt(arg.substring("--input-mb=".length()));
+			}
+			else
+			{
+				System.err.println("Unknown option " + arg);
+				System.exit(2);
+			}
+		}
+
+		// Exit only after the finally block has removed the temporary input.
+		int status = 0;
+		Path dir = Files.createTempDirectory("reference-check");
+		try
+		{
+			Path brackets = dir.resolve("brackets.txt");
+			PerfInputs.brackets(brackets, inputMb * (1L << 20));
+
+			String answer = _2021.day10.Day10.solve(brackets);
+			String analytics = String.valueOf(_2021.day10.BracketAnalytics.build(brackets).errorScore());
+			System.out.println("Day10 on " + inputMb + " MB: " + answer + ", BracketAnalytics: " + analytics);
+
+			Map<String, PerfGate.Result> current = new LinkedHashMap<>();
+			current.put("Day10", new PerfGate.Result(0, 0, answer));
+			boolean failed = !answer.equals(analytics);
+			failed |= PerfGate.checkReferences(dir, current, null, brackets);
+			if (failed)
+			{
+				System.out.println("FAILED");
+				status = 1;
+			}
+		}
+		finally
+		{
+			try (Stream<Path> files = Files.walk(dir))
+			{
+				files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+		if (status != 0)
+		{
+			System.exit(status);
+		}
+	}
+}
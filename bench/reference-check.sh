@@ -0,0 +1,12 @@
+#!/bin/sh
+# Compiles the shared helpers, the benchmarked solvers and the check, then runs the large-input
+# reference check from the repository root. Arguments are passed on to bench.ReferenceCheck;
+# python3/node are needed for the reference side.
+set -e
+cd "$(dirname "$0")/.."
+out=$(mktemp -d)
+trap 'rm -rf "$out"' EXIT
+find common bench "2026-02-03/Daniel M" "2026-02-17/Daniel M - Main" "2026-03-10/Daniel M" -name '*.java' -print0 \
+	| xargs -0 javac -d "$out"
+# JAVA_OPTS is added after the defaults, so it can override them (e.g. JAVA_OPTS=-Xmx4g).
+java -Xms1g -Xmx1g $JAVA_OPTS -cp "$out" bench.ReferenceCheck "$@"
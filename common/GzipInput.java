@@ -0,0 +1,534 @@
+package common;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Lines of a gzip-compressed input, decompressed on the fly so that nothing is written to disk.
+ *
+ * <p>A background thread inflates into a small ring of reusable direct buffers while the caller
+ * parses the previous ones, so the run takes as long as the slower of the two stages rather than
+ * their sum. Files with several gzip members are read member after member. Members that record
+ * their compressed length in a BGZF ({@code BC}) extra field, as written by {@code bgzip}, are
+ * inflated in parallel and handed back in order; for plain gzip the end of a member is only known
+ * once it has been inflated, so those members are inflated one at a time.
+ */
+public final class GzipInput implements LineSource
+{
+	private static final int CHUNK = 1 << 20;
+	private static final int RING = 4;
+	private static final ByteBuffer EOF = ByteBuffer.allocate(0);
+
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private final FileChannel channel;
+	private final ArrayBlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(RING);
+	private final ArrayBlockingQueue<Future<ByteBuffer>> filled = new ArrayBlockingQueue<>(RING);
+	private final ExecutorService inflaters;
+	private final Thread producer;
+	private volatile Throwable failure;
+	private boolean iterated;
+
+	private GzipInput(FileChannel channel, int threads)
+	{
+		this.channel = channel;
+		for (int i = 0; i < RING; i++)
+		{
+			free.add(ByteBuffer.allocateDirect(CHUNK));
+		}
+
+		inflaters = threads > 1 ? Executors.newFixedThreadPool(threads, r ->
+		{
+			Thread t = new Thread(r, "gzip-inflate");
+			t.setDaemon(true);
+			return t;
+		}) : null;
+
+		producer = new Thread(this::produce, "gzip-reader");
+		producer.setDaemon(true);
+	}
+
+	public static GzipInput open(Path path) throws IOException
+	{
+		return open(path, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Opens {@code path}, using up to {@code threads} threads for BGZF members.
+	 */
+	public static GzipInput open(Path path, int threads) throws IOException
+	{
+		GzipInput input = new GzipInput(FileChannel.open(path, StandardOpenOption.READ), threads);
+		input.producer.start();
+		return input;
+	}
+
+	/**
+	 * Lines of the decompressed file. Can only be iterated once.
+	 */
+	@Override
+	public synchronized Iterator<Line> iterator()
+	{
+		if (iterated)
+		{
+			throw new IllegalStateException("GzipInput can only be iterated once");
+		}
+		iterated = true;
+		return new LineIterator();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		producer.interrupt();
+		if (inflaters != null)
+		{
+			inflaters.shutdownNow();
+		}
+		channel.close();
+	}
+
+	private void produce()
+	{
+		try
+		{
+			Compressed in = new Compressed(channel);
+			while (in.ensure(1))
+			{
+				int blockSize = in.readHeader();
+				if (inflaters != null && blockSize >= 0)
+				{
+					ByteBuffer block = in.take(blockSize - in.headerLength);
+					filled.put(inflaters.submit(() -> inflateBlock(block)));
+				}
+				else
+				{
+					inflateMember(in);
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			return;
+		}
+		catch (Throwable t)
+		{
+			failure = t;
+		}
+
+		try
+		{
+			filled.put(CompletableFuture.completedFuture(EOF));
+		}
+		catch (InterruptedException e)
+		{
+			// Closed before the reader caught up.
+		}
+	}
+
+	/**
+	 * Inflates one member on this thread, passing each full ring buffer on as soon as it fills.
+	 */
+	private void inflateMember(Compressed in) throws IOException, InterruptedException
+	{
+		Inflater inflater = new Inflater(true);
+		CRC32 crc = new CRC32();
+		long size = 0;
+		try
+		{
+			ByteBuffer out = free.take().clear();
+			while (!inflater.finished())
+			{
+				if (inflater.needsInput())
+				{
+					if (!in.ensure(1))
+					{
+						throw new EOFException("Unexpected end of gzip member");
+					}
+					inflater.setInput(in.buf);
+				}
+
+				inflater.inflate(out);
+				if (inflater.needsDictionary())
+				{
+					throw new ZipException("Unsupported preset dictionary");
+				}
+
+				if (!out.hasRemaining())
+				{
+					size += emit(out, crc);
+					out = free.take().clear();
+				}
+			}
+
+			if (out.position() > 0)
+			{
+				size += emit(out, crc);
+			}
+			else
+			{
+				free.offer(out);
+			}
+		}
+		catch (DataFormatException e)
+		{
+			throw new ZipException(e.getMessage());
+		}
+		finally
+		{
+			inflater.end();
+		}
+
+		in.readTrailer(crc, size);
+	}
+
+	private long emit(ByteBuffer out, CRC32 crc) throws InterruptedException
+	{
+		out.flip();
+		int n = out.remaining();
+		crc.update(out.duplicate());
+		filled.put(CompletableFuture.completedFuture(out));
+		return n;
+	}
+
+	/**
+	 * Inflates a whole BGZF member (compressed data plus trailer) on a pool thread.
+	 */
+	private ByteBuffer inflateBlock(ByteBuffer block) throws IOException
+	{
+		int dataLength = block.remaining() - 8;
+		if (dataLength < 0)
+		{
+			throw new ZipException("BGZF block too short");
+		}
+		ByteBuffer trailer = block.slice(dataLength, 8).order(ByteOrder.LITTLE_ENDIAN);
+		int expectedCrc = trailer.getInt(0);
+		int expectedSize = trailer.getInt(4);
+
+		// Never block here: the buffer this block needs may be held by a block behind it.
+		ByteBuffer out = free.poll();
+		if (out == null || out.capacity() <= expectedSize)
+		{
+			out = ByteBuffer.allocateDirect(Math.max(expectedSize + 1, 1 << 16));
+		}
+		out.clear();
+
+		Inflater inflater = new Inflater(true);
+		try
+		{
+			inflater.setInput(block.slice(0, dataLength));
+			while (!inflater.finished())
+			{
+				if (inflater.inflate(out) == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary() || !out.hasRemaining()))
+				{
+					throw new ZipException("Corrupt BGZF block");
+				}
+			}
+		}
+		catch (DataFormatException e)
+		{
+			throw new ZipException(e.getMessage());
+		}
+		finally
+		{
+			inflater.end();
+		}
+
+		out.flip();
+		CRC32 crc = new CRC32();
+		crc.update(out.duplicate());
+		if (out.remaining() != expectedSize || (int) crc.getValue() != expectedCrc)
+		{
+			throw new ZipException("Corrupt BGZF block (CRC or size mismatch)");
+		}
+		return out;
+	}
+
+	/**
+	 * Compressed bytes read through one reusable direct buffer, little-endian like gzip itself.
+	 */
+	private static final class Compressed
+	{
+		private final FileChannel channel;
+		final ByteBuffer buf = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN).flip();
+		int headerLength;
+
+		Compressed(FileChannel channel)
+		{
+			this.channel = channel;
+		}
+
+		/**
+		 * Makes at least {@code n} bytes available, returning false at end of file.
+		 */
+		boolean ensure(int n) throws IOException
+		{
+			if (buf.remaining() >= n)
+			{
+				return true;
+			}
+			buf.compact();
+			while (buf.position() < n)
+			{
+				if (channel.read(buf) < 0)
+				{
+					break;
+				}
+			}
+			buf.flip();
+			return buf.remaining() >= n;
+		}
+
+		private void require(int n) throws IOException
+		{
+			if (!ensure(n))
+			{
+				throw new EOFException("Unexpected end of gzip header");
+			}
+		}
+
+		/**
+		 * Reads a member header and returns the member's total size from its BGZF field, or -1.
+		 */
+		int readHeader() throws IOException
+		{
+			require(10);
+			if ((buf.get() & 0xFF) != 0x1F || (buf.get() & 0xFF) != 0x8B)
+			{
+				throw new ZipException("Not in GZIP format");
+			}
+			if (buf.get() != 8)
+			{
+				throw new ZipException("Unsupported compression method");
+			}
+			int flags = buf.get();
+			buf.position(buf.position() + 6);
+			headerLength = 10;
+
+			int blockSize = -1;
+			if ((flags & FEXTRA) != 0)
+			{
+				require(2);
+				int extraLength = buf.getShort() & 0xFFFF;
+				require(extraLength);
+				int end = buf.position() + extraLength;
+				while (end - buf.position() >= 4)
+				{
+					int si1 = buf.get();
+					int si2 = buf.get();
+					int length = buf.getShort() & 0xFFFF;
+					if (si1 == 'B' && si2 == 'C' && length == 2)
+					{
+						blockSize = (buf.getShort(buf.position()) & 0xFFFF) + 1;
+					}
+					buf.position(Math.min(end, buf.position() + length));
+				}
+				buf.position(end);
+				headerLength += 2 + extraLength;
+			}
+			if ((flags & FNAME) != 0)
+			{
+				headerLength += skipZeroTerminated();
+			}
+			if ((flags & FCOMMENT) != 0)
+			{
+				headerLength += skipZeroTerminated();
+			}
+			if ((flags & FHCRC) != 0)
+			{
+				require(2);
+				buf.getShort();
+				headerLength += 2;
+			}
+			return blockSize;
+		}
+
+		private int skipZeroTerminated() throws IOException
+		{
+			int n = 0;
+			do
+			{
+				require(1);
+				n++;
+			}
+			while (buf.get() != 0);
+			return n;
+		}
+
+		/**
+		 * Copies the next {@code n} bytes out so they can be inflated on another thread.
+		 */
+		ByteBuffer take(int n) throws IOException
+		{
+			if (n < 0 || n > buf.capacity())
+			{
+				throw new ZipException("Bad BGZF block size");
+			}
+			if (!ensure(n))
+			{
+				throw new EOFException("Unexpected end of BGZF block");
+			}
+			ByteBuffer copy = ByteBuffer.allocate(n);
+			copy.put(buf.slice(buf.position(), n)).flip();
+			buf.position(buf.position() + n);
+			return copy;
+		}
+
+		void readTrailer(CRC32 crc, long size) throws IOException
+		{
+			if (!ensure(8))
+			{
+				throw new EOFException("Unexpected end of gzip trailer");
+			}
+			if (buf.getInt() != (int) crc.getValue() || buf.getInt() != (int) size)
+			{
+				throw new ZipException("Corrupt GZIP trailer");
+			}
+		}
+	}
+
+	/**
+	 * Consumer side of the pipeline. A line that runs across two buffers is copied into a scratch
+	 * buffer; every other line is a view straight into the inflated buffer.
+	 */
+	private final class LineIterator implements Iterator<Line>
+	{
+		private final Line line = new Line();
+		private ByteBuffer scratch = ByteBuffer.allocate(1 << 12);
+		private ByteBuffer current;
+		private boolean ready;
+		private boolean done;
+
+		@Override
+		public boolean hasNext()
+		{
+			if (!ready && !done)
+			{
+				advance();
+			}
+			return ready;
+		}
+
+		@Override
+		public Line next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			ready = false;
+			return line;
+		}
+
+		private void advance()
+		{
+			scratch.clear();
+			boolean carrying = false;
+			while (true)
+			{
+				if (current == null || !current.hasRemaining())
+				{
+					if (current != null)
+					{
+						free.offer(current);
+					}
+					current = nextBuffer();
+					if (current == null)
+					{
+						done = true;
+						if (carrying)
+						{
+							line.set(scratch, 0, scratch.position());
+							ready = true;
+						}
+						return;
+					}
+					continue;
+				}
+
+				int from = current.position();
+				int eol = Line.LineSpliterator.lineEnd(current, from, current.limit());
+				if (eol < current.limit())
+				{
+					current.position(eol + 1);
+					if (carrying)
+					{
+						append(from, eol);
+						line.set(scratch, 0, scratch.position());
+					}
+					else
+					{
+						line.set(current, from, eol);
+					}
+					ready = true;
+					return;
+				}
+
+				append(from, current.limit());
+				current.position(current.limit());
+				carrying = true;
+			}
+		}
+
+		private void append(int from, int to)
+		{
+			int n = to - from;
+			if (scratch.remaining() < n)
+			{
+				ByteBuffer bigger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + n));
+				scratch.flip();
+				bigger.put(scratch);
+				scratch = bigger;
+			}
+			scratch.put(current.slice(from, n));
+		}
+
+		private ByteBuffer nextBuffer()
+		{
+			try
+			{
+				ByteBuffer buf = filled.take().get();
+				if (buf != EOF)
+				{
+					return buf;
+				}
+				if (failure != null)
+				{
+					throw failure instanceof IOException ? new UncheckedIOException((IOException) failure) : new RuntimeException(failure);
+				}
+				return null;
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while reading " + channel, e);
+			}
+			catch (ExecutionException e)
+			{
+				Throwable cause = e.getCause();
+				throw cause instanceof IOException ? new UncheckedIOException((IOException) cause) : new RuntimeException(cause);
+			}
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size log-linear histogram of non-negative values (typically nanoseconds), in the style of
+ * HdrHistogram: values below {@value #SUB_BUCKETS} get a bucket each, and every power of two above
+ * that is split into {@value #HALF} linear sub-buckets, so any recorded value is reported within
+ * about 1.6% of its true value. Recording never allocates.
+ *
+ * <p>Histograms can be {@link #merge merged} and written to a stream, so parallel workers can each
+ * fill their own and combine them afterwards.
+ */
+public final class LatencyHistogram
+{
+	private static final int SUB_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int HALF = SUB_BUCKETS / 2;
+	private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BITS) * HALF;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	public void record(long value)
+	{
+		if (value < 0)
+		{
+			value = 0;
+		}
+		counts.incrementAndGet(index(value));
+		total.increment();
+		max.accumulate(value);
+	}
+
+	public long count()
+	{
+		return total.sum();
+	}
+
+	public long max()
+	{
+		return max.get();
+	}
+
+	/**
+	 * Value at quantile {@code q} (0 to 1), reported as the upper edge of its bucket.
+	 */
+	public long percentile(double q)
+	{
+		long n = count();
+		if (n == 0)
+		{
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(q * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			seen += counts.get(i);
+			if (seen >= rank)
+			{
+				return Math.min(upperEdge(i), max());
+			}
+		}
+		return max();
+	}
+
+	/**
+	 * Number of recorded values in buckets up to and including the one holding {@code value}.
+	 */
+	public long countAtOrBelow(long value)
+	{
+		if (value < 0)
+		{
+			return 0;
+		}
+		int last = index(value);
+		long seen = 0;
+		for (int i = 0; i <= last; i++)
+		{
+			seen += counts.get(i);
+		}
+		return seen;
+	}
+
+	/**
+	 * Adds everything recorded in {@code other} to this histogram.
+	 */
+	public void merge(LatencyHistogram other)
+	{
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			long n = other.counts.get(i);
+			if (n != 0)
+			{
+				counts.addAndGet(i, n);
+			}
+		}
+		total.add(other.count());
+		max.accumulate(other.max());
+	}
+
+	/**
+	 * Writes the non-empty buckets as (index, count) pairs.
+	 */
+	public void writeTo(DataOutput out) throws IOException
+	{
+		int used = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			if (counts.get(i) != 0)
+			{
+				used++;
+			}
+		}
+		out.writeLong(max());
+		out.writeInt(used);
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			long n = counts.get(i);
+			if (n != 0)
+			{
+				out.writeShort(i);
+				out.writeLong(n);
+			}
+		}
+	}
+
+	public static LatencyHistogram readFrom(DataInput in) throws IOException
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.max.accumulate(in.readLong());
+		int used = in.readInt();
+		for (int b = 0; b < used; b++)
+		{
+			int i = in.readUnsignedShort();
+			long n = in.readLong();
+			if (i >= BUCKETS || n < 0)
+			{
+				throw new IOException("Corrupt histogram bucket " + i);
+			}
+			histogram.counts.addAndGet(i, n);
+			histogram.total.add(n);
+		}
+		return histogram;
+	}
+
+	public void reset()
+	{
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			counts.set(i, 0);
+		}
+		total.reset();
+		max.reset();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("count=%d p50=%d p99=%d p99.9=%d max=%d", count(), percentile(0.5), percentile(0.99), percentile(0.999), max());
+	}
+
+	static int index(long value)
+	{
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+		if (shift <= 0)
+		{
+			return (int) value;
+		}
+		return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+	}
+
+	static long upperEdge(int index)
+	{
+		if (index < SUB_BUCKETS)
+		{
+			return index;
+		}
+		int k = index - SUB_BUCKETS;
+		int shift = k / HALF + 1;
+		long sub = k % HALF + HALF;
+		return ((sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,426 @@
+package common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A view of one line (or one blank-line-separated block) of an input buffer. Bytes are read as
+ * ISO-8859-1 characters, which is all the puzzle inputs use.
+ *
+ * <p>Lines handed out by {@link MappedInput} are flyweights: the same instance is repointed at the
+ * next line on every step. Call {@link #toString()} to keep a line's text around.
+ */
+public final class Line implements CharSequence
+{
+	ByteBuffer buf;
+	int start;
+	int length;
+
+	Line()
+	{
+	}
+
+	Line(ByteBuffer buf, int start, int length)
+	{
+		this.buf = buf;
+		this.start = start;
+		this.length = length;
+	}
+
+	/**
+	 * Points this view at {@code [from, to)} of {@code buf}, dropping a trailing carriage return.
+	 */
+	Line set(ByteBuffer buf, int from, int to)
+	{
+		if (to > from && buf.get(to - 1) == '\r')
+		{
+			to--;
+		}
+		this.buf = buf;
+		this.start = from;
+		this.length = to - from;
+		return this;
+	}
+
+	@Override
+	public int length()
+	{
+		return length;
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		return (char) (byteAt(index) & 0xFF);
+	}
+
+	public byte byteAt(int index)
+	{
+		if (index < 0 || index >= length)
+		{
+			throw new IndexOutOfBoundsException(index);
+		}
+		return buf.get(start + index);
+	}
+
+	/**
+	 * Returns a new (non-flyweight) view of part of this line.
+	 */
+	@Override
+	public Line subSequence(int from, int to)
+	{
+		if (from < 0 || to > length || from > to)
+		{
+			throw new IndexOutOfBoundsException("[" + from + ", " + to + ") of " + length);
+		}
+		return new Line(buf, start + from, to - from);
+	}
+
+	/**
+	 * Returns a new view of the same bytes that is not repointed by the iterator it came from.
+	 */
+	public Line copy()
+	{
+		return new Line(buf, start, length);
+	}
+
+	/**
+	 * The buffer this view reads from; the line is {@code [offset(), offset() + length())} of it.
+	 * Lets callers remember where a line is without copying it. Only read from it with absolute
+	 * gets; the buffer is shared with the input it came from.
+	 */
+	public ByteBuffer buffer()
+	{
+		return buf;
+	}
+
+	public int offset()
+	{
+		return start;
+	}
+
+	public boolean isBlank()
+	{
+		for (int i = start; i < start + length; i++)
+		{
+			if ((buf.get(i) & 0xFF) > ' ')
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int indexOf(char c, int from)
+	{
+		for (int i = Math.max(from, 0); i < length; i++)
+		{
+			if (buf.get(start + i) == (byte) c)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Parses the line as a decimal {@code int}, ignoring surrounding whitespace.
+	 */
+	public int parseInt()
+	{
+		long value = parseLong();
+		if (value != (int) value)
+		{
+			throw new NumberFormatException("For input string: \"" + this + "\" under radix 10");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Parses the line as a decimal {@code long}, ignoring surrounding whitespace.
+	 */
+	public long parseLong()
+	{
+		return parseLong(buf, start, start + length);
+	}
+
+	/**
+	 * Parses {@code [from, to)} of {@code buf} as a decimal {@code long}, ignoring surrounding
+	 * whitespace, without creating a {@code String}.
+	 */
+	public static long parseLong(ByteBuffer buf, int from, int to)
+	{
+		while (from < to && (buf.get(from) & 0xFF) <= ' ')
+		{
+			from++;
+		}
+		while (to > from && (buf.get(to - 1) & 0xFF) <= ' ')
+		{
+			to--;
+		}
+
+		boolean negative = false;
+		int i = from;
+		if (i < to && (buf.get(i) == '-' || buf.get(i) == '+'))
+		{
+			negative = buf.get(i) == '-';
+			i++;
+		}
+		if (i == to)
+		{
+			throw numberFormat(buf, from, to);
+		}
+
+		// Accumulate negatively so that Long.MIN_VALUE parses.
+		long value = 0;
+		for (; i < to; i++)
+		{
+			int digit = buf.get(i) - '0';
+			if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10)
+			{
+				throw numberFormat(buf, from, to);
+			}
+			value = value * 10 - digit;
+		}
+
+		if (!negative)
+		{
+			if (value == Long.MIN_VALUE)
+			{
+				throw numberFormat(buf, from, to);
+			}
+			value = -value;
+		}
+		return value;
+	}
+
+	/**
+	 * The lines inside this view, for a block handed out by {@link MappedInput#blocks()}.
+	 */
+	public Stream<Line> lines()
+	{
+		return StreamSupport.stream(new LineSpliterator(new ByteBuffer[] {buf}, 0, 1, start, start + length, false), false);
+	}
+
+	public boolean contentEquals(CharSequence other)
+	{
+		if (other.length() != length)
+		{
+			return false;
+		}
+		for (int i = 0; i < length; i++)
+		{
+			if (charAt(i) != other.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString()
+	{
+		byte[] bytes = new byte[length];
+		buf.get(start, bytes);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	private static NumberFormatException numberFormat(ByteBuffer buf, int from, int to)
+	{
+		return new NumberFormatException("For input string: \"" + new Line(buf, from, to - from) + "\"");
+	}
+
+	/**
+	 * Walks the lines (or blocks) of a run of buffers. Splits first across buffers, then at the
+	 * line boundary nearest the middle of the remaining range, so parallel streams get even work.
+	 */
+	static final class LineSpliterator implements Spliterator<Line>
+	{
+		private static final int MIN_SPLIT = 1 << 16;
+
+		private final ByteBuffer[] segments;
+		private final boolean blocks;
+		private final Line line = new Line();
+		private int segment;
+		private int segmentEnd;
+		private int pos;
+		private int end;
+
+		/**
+		 * Covers {@code [pos, end)} of {@code segments[segment]} followed by the whole of every
+		 * later segment up to {@code segmentEnd}.
+		 */
+		LineSpliterator(ByteBuffer[] segments, int segment, int segmentEnd, int pos, int end, boolean blocks)
+		{
+			this.segments = segments;
+			this.segment = segment;
+			this.segmentEnd = segmentEnd;
+			this.pos = pos;
+			this.end = end;
+			this.blocks = blocks;
+		}
+
+		@Override
+		public boolean tryAdvance(java.util.function.Consumer<? super Line> action)
+		{
+			while (true)
+			{
+				ByteBuffer buf = segments[segment];
+				if (blocks)
+				{
+					pos = skipBlankLines(buf, pos, end);
+				}
+
+				if (pos < end)
+				{
+					int from = pos;
+					int to = blocks ? blockEnd(buf, pos, end) : lineEnd(buf, pos, end);
+					pos = to < end ? to + 1 : end;
+					action.accept(line.set(buf, from, to));
+					return true;
+				}
+
+				if (segment + 1 >= segmentEnd)
+				{
+					return false;
+				}
+				segment++;
+				pos = 0;
+				end = segments[segment].limit();
+			}
+		}
+
+		@Override
+		public Spliterator<Line> trySplit()
+		{
+			if (segmentEnd - segment > 1)
+			{
+				// Hand the later segments off whole.
+				int mid = segment + 1 + (segmentEnd - segment - 1) / 2;
+				LineSpliterator prefix = new LineSpliterator(segments, segment, mid, pos, end, blocks);
+				segment = mid;
+				pos = 0;
+				end = segments[mid].limit();
+				return prefix;
+			}
+
+			if (end - pos < MIN_SPLIT)
+			{
+				return null;
+			}
+
+			ByteBuffer buf = segments[segment];
+			int cut = blocks ? afterBlankLine(buf, pos + (end - pos) / 2, end) : afterLineBreak(buf, pos + (end - pos) / 2, end);
+			if (cut <= pos || cut >= end)
+			{
+				return null;
+			}
+
+			LineSpliterator prefix = new LineSpliterator(segments, segment, segment + 1, pos, cut, blocks);
+			pos = cut;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize()
+		{
+			long bytes = end - pos;
+			for (int i = segment + 1; i < segmentEnd; i++)
+			{
+				bytes += segments[i].limit();
+			}
+			// Rough guess of 32 bytes per line; only used to balance splits.
+			return bytes / 32 + 1;
+		}
+
+		@Override
+		public int characteristics()
+		{
+			return ORDERED | NONNULL | IMMUTABLE;
+		}
+
+		private static boolean isBlank(ByteBuffer buf, int from, int to)
+		{
+			for (int i = from; i < to; i++)
+			{
+				if ((buf.get(i) & 0xFF) > ' ')
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static int skipBlankLines(ByteBuffer buf, int pos, int end)
+		{
+			while (pos < end)
+			{
+				int eol = lineEnd(buf, pos, end);
+				if (!isBlank(buf, pos, eol))
+				{
+					return pos;
+				}
+				pos = eol < end ? eol + 1 : end;
+			}
+			return pos;
+		}
+
+		static int lineEnd(ByteBuffer buf, int pos, int end)
+		{
+			while (pos < end && buf.get(pos) != '\n')
+			{
+				pos++;
+			}
+			return pos;
+		}
+
+		/**
+		 * End of the block starting at {@code pos}: the newline that precedes a blank line, or
+		 * {@code end}. Trailing newlines of the last block are left out.
+		 */
+		static int blockEnd(ByteBuffer buf, int pos, int end)
+		{
+			int lineStart = pos;
+			while (true)
+			{
+				int eol = lineEnd(buf, lineStart, end);
+				if (eol >= end)
+				{
+					return end;
+				}
+				int next = eol + 1;
+				int nextEol = lineEnd(buf, next, end);
+				if (isBlank(buf, next, nextEol))
+				{
+					return eol;
+				}
+				lineStart = next;
+			}
+		}
+
+		static int afterLineBreak(ByteBuffer buf, int pos, int end)
+		{
+			int eol = lineEnd(buf, pos, end);
+			return eol < end ? eol + 1 : end;
+		}
+
+		static int afterBlankLine(ByteBuffer buf, int pos, int end)
+		{
+			int lineStart = afterLineBreak(buf, pos, end);
+			while (lineStart < end)
+			{
+				int eol = lineEnd(buf, lineStart, end);
+				if (isBlank(buf, lineStart, eol))
+				{
+					return eol < end ? eol + 1 : end;
+				}
+				lineStart = eol + 1;
+			}
+			return end;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package common;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Lines of a puzzle input, read either straight from a memory mapping or through a decompression
+ * pipeline. Like {@link MappedInput}, the {@link Line} handed out is reused between steps.
+ */
+public interface LineSource extends Iterable<Line>, AutoCloseable
+{
+	/**
+	 * Opens {@code path} as a {@link GzipInput} if its name ends in {@code .gz}, otherwise as a
+	 * {@link MappedInput}.
+	 */
+	static LineSource open(Path path) throws IOException
+	{
+		if (path.getFileName().toString().endsWith(".gz"))
+		{
+			return GzipInput.open(path);
+		}
+		return MappedInput.open(path);
+	}
+
+	@Override
+	void close() throws IOException;
+}
@@ -0,0 +1,214 @@
+package common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Memory-mapped puzzle input read as {@link Line} views, with no {@code String} per line.
+ *
+ * <pre>
+ * for (Line line : MappedInput.open(path))
+ * {
+ *     if (line.isBlank()) ...
+ *     total += line.parseInt();
+ * }
+ * </pre>
+ *
+ * <p>Files larger than one mapping (1 GiB) are mapped in several pieces, each cut just after a
+ * blank line where one is found nearby, otherwise just after a line break. A line too long to have
+ * a break near the cut widens the search, back towards the start of the piece and then past its
+ * end, so a piece can grow up to the 2 GiB mapping limit to hold it.
+ */
+public final class MappedInput implements LineSource
+{
+	private static final int SEGMENT_SIZE = 1 << 30;
+	private static final int BLANK_LINE_SEARCH = 1 << 20;
+
+	private final ByteBuffer[] segments;
+	private final long size;
+
+	private MappedInput(ByteBuffer[] segments, long size)
+	{
+		this.segments = segments;
+		this.size = size;
+	}
+
+	public static MappedInput open(Path path) throws IOException
+	{
+		return open(path, SEGMENT_SIZE);
+	}
+
+	static MappedInput open(Path path, int segmentSize) throws IOException
+	{
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			long size = ch.size();
+			List<ByteBuffer> segments = new ArrayList<>();
+			long pos = 0;
+			while (pos < size)
+			{
+				long end = size - pos <= segmentSize ? size : segmentEnd(ch, pos, pos + segmentSize, size);
+				segments.add(ch.map(FileChannel.MapMode.READ_ONLY, pos, end - pos));
+				pos = end;
+			}
+			if (segments.isEmpty())
+			{
+				segments.add(ByteBuffer.allocate(0));
+			}
+
+			return new MappedInput(segments.toArray(new ByteBuffer[0]), size);
+		}
+	}
+
+	/**
+	 * Wraps bytes that are already in memory, e.g. an inflated chunk of a compressed file.
+	 */
+	public static MappedInput wrap(ByteBuffer bytes)
+	{
+		return new MappedInput(new ByteBuffer[] {bytes.slice()}, bytes.remaining());
+	}
+
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	 * The mapped pieces of the file, each holding whole lines.
+	 */
+	public List<ByteBuffer> segments()
+	{
+		List<ByteBuffer> views = new ArrayList<>(segments.length);
+		for (ByteBuffer segment : segments)
+		{
+			views.add(segment.asReadOnlyBuffer());
+		}
+		return views;
+	}
+
+	/**
+	 * Lines of the file, without line terminators. The returned view is reused between steps.
+	 */
+	@Override
+	public Iterator<Line> iterator()
+	{
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public Spliterator<Line> spliterator()
+	{
+		return new Line.LineSpliterator(segments, 0, segments.length, 0, segments[0].limit(), false);
+	}
+
+	/**
+	 * Lines of the file. Parallel streams split at line boundaries; each worker gets its own
+	 * flyweight view.
+	 */
+	public Stream<Line> lines()
+	{
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Blank-line-separated blocks of the file, each a view spanning its lines (see
+	 * {@link Line#lines()}).
+	 */
+	public Stream<Line> blocks()
+	{
+		return StreamSupport.stream(new Line.LineSpliterator(segments, 0, segments.length, 0, segments[0].limit(), true), false);
+	}
+
+	/**
+	 * Nothing to release; the mapping goes away with the last reference to it.
+	 */
+	@Override
+	public void close()
+	{
+	}
+
+	/**
+	 * End of the segment starting at {@code pos} that should end near {@code limit}. Looks back from
+	 * {@code limit} through windows of doubling size, and if the segment has no line break at all
+	 * before {@code limit}, ends it just after the first one past it.
+	 */
+	private static long segmentEnd(FileChannel ch, long pos, long limit, long size) throws IOException
+	{
+		for (long search = BLANK_LINE_SEARCH; ; search *= 2)
+		{
+			long from = Math.max(pos, limit - search);
+			long end = cut(ch, from, limit);
+			if (end >= 0)
+			{
+				return end;
+			}
+			if (from == pos)
+			{
+				break;
+			}
+		}
+
+		long maxEnd = Math.min(size, pos + Integer.MAX_VALUE);
+		for (long from = limit; from < maxEnd; from += BLANK_LINE_SEARCH)
+		{
+			ByteBuffer window = ch.map(FileChannel.MapMode.READ_ONLY, from, Math.min(BLANK_LINE_SEARCH, maxEnd - from));
+			for (int i = 0; i < window.limit(); i++)
+			{
+				if (window.get(i) == '\n')
+				{
+					return from + i + 1;
+				}
+			}
+		}
+		if (maxEnd == size)
+		{
+			// The rest of the file is one unterminated line.
+			return size;
+		}
+		throw new IOException("Line starting before offset " + limit + " is longer than one mapping");
+	}
+
+	/**
+	 * Picks a segment end in {@code [from, limit]}: just after the last blank line in that window
+	 * if there is one, otherwise just after the last line break before {@code limit}, or -1 if the
+	 * window has no line break.
+	 */
+	private static long cut(FileChannel ch, long from, long limit) throws IOException
+	{
+		ByteBuffer window = ch.map(FileChannel.MapMode.READ_ONLY, from, limit - from);
+		int lastBreak = -1;
+		for (int i = window.limit() - 1; i >= 0; i--)
+		{
+			if (window.get(i) != '\n')
+			{
+				continue;
+			}
+			if (lastBreak < 0)
+			{
+				lastBreak = i;
+			}
+
+			int j = i - 1;
+			while (j >= 0 && (window.get(j) == ' ' || window.get(j) == '\t' || window.get(j) == '\r'))
+			{
+				j--;
+			}
+			if (j >= 0 && window.get(j) == '\n')
+			{
+				return from + i + 1;
+			}
+		}
+
+		return lastBreak < 0 ? -1 : from + lastBreak + 1;
+	}
+}
@@ -0,0 +1,137 @@
+package common;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Progress counters and latency histograms for long solver runs, switched on with
+ * {@code -Dclub.metrics=true}.
+ *
+ * <p>Hot loops guard their updates with {@link #ENABLED}, which is a constant, so with metrics off
+ * the JIT removes them entirely. With metrics on, counters are {@link LongAdder}s (striped, so
+ * parallel workers don't contend) and a reporter prints totals and per-second rates to stderr every
+ * {@code -Dclub.metrics.periodMs} milliseconds (default 1000). The same numbers are exposed over JMX
+ * as {@code common:type=Metrics}.
+ *
+ * <pre>
+ * private static final LongAdder STEPS = Metrics.counter("day8.steps");
+ * ...
+ * if (Metrics.ENABLED)
+ * {
+ *     STEPS.increment();
+ * }
+ * </pre>
+ */
+public final class Metrics implements MetricsMXBean
+{
+	public static final boolean ENABLED = Boolean.getBoolean("club.metrics");
+
+	private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+	private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+	private static ScheduledExecutorService reporter;
+
+	private Metrics()
+	{
+	}
+
+	public static LongAdder counter(String name)
+	{
+		return COUNTERS.computeIfAbsent(name, n -> new LongAdder());
+	}
+
+	public static LatencyHistogram histogram(String name)
+	{
+		return HISTOGRAMS.computeIfAbsent(name, n -> new LatencyHistogram());
+	}
+
+	/**
+	 * Starts the periodic reporter and registers the JMX bean, if metrics are enabled. A final report
+	 * is printed when the JVM exits. Safe to call more than once.
+	 */
+	public static synchronized void start()
+	{
+		if (!ENABLED || reporter != null)
+		{
+			return;
+		}
+
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(), new ObjectName("common:type=Metrics"));
+		}
+		catch (JMException e)
+		{
+			System.err.println("Metrics: JMX registration failed: " + e);
+		}
+
+		long period = Long.getLong("club.metrics.periodMs", 1000);
+		reporter = Executors.newSingleThreadScheduledExecutor(r ->
+		{
+			Thread t = new Thread(r, "metrics-reporter");
+			t.setDaemon(true);
+			return t;
+		});
+		Map<String, Long> previous = new TreeMap<>();
+		long[] last = {System.nanoTime()};
+		reporter.scheduleAtFixedRate(() ->
+		{
+			long now = System.nanoTime();
+			report(previous, (now - last[0]) / 1e9);
+			last[0] = now;
+		}, period, period, TimeUnit.MILLISECONDS);
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> report(null, 0), "metrics-final-report"));
+	}
+
+	/**
+	 * Prints every counter (with its rate since {@code previous}, when given) and histogram.
+	 */
+	private static synchronized void report(Map<String, Long> previous, double seconds)
+	{
+		StringBuilder line = new StringBuilder(previous == null ? "[metrics] final:" : "[metrics]");
+		for (Map.Entry<String, Long> e : new TreeMap<>(snapshot()).entrySet())
+		{
+			line.append(' ').append(e.getKey()).append('=').append(e.getValue());
+			if (previous != null)
+			{
+				long delta = e.getValue() - previous.getOrDefault(e.getKey(), 0L);
+				line.append(String.format(" (%.0f/s)", seconds > 0 ? delta / seconds : 0));
+				previous.put(e.getKey(), e.getValue());
+			}
+		}
+		for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(HISTOGRAMS).entrySet())
+		{
+			line.append(' ').append(e.getKey()).append("{").append(e.getValue()).append('}');
+		}
+		System.err.println(line);
+	}
+
+	private static Map<String, Long> snapshot()
+	{
+		Map<String, Long> values = new TreeMap<>();
+		COUNTERS.forEach((name, counter) -> values.put(name, counter.sum()));
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getCounters()
+	{
+		return snapshot();
+	}
+
+	@Override
+	public Map<String, String> getHistograms()
+	{
+		Map<String, String> values = new TreeMap<>();
+		HISTOGRAMS.forEach((name, histogram) -> values.put(name, histogram.toString()));
+		return values;
+	}
+}
@@ -0,0 +1,14 @@
+package common;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics}, registered as {@code common:type=Metrics} (visible in JConsole or
+ * VisualVM while a solver runs).
+ */
+public interface MetricsMXBean
+{
+	Map<String, Long> getCounters();
+
+	Map<String, String> getHistograms();
+}
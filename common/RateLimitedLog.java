@@ -0,0 +1,74 @@
+package common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Diagnostic printing for hot loops: only every {@code sampleEvery}-th call is considered, and at
+ * most {@code perSecond} messages are printed each second. The message is built only when it will
+ * actually be printed, so skipped calls cost a counter increment.
+ *
+ * <pre>
+ * private static final RateLimitedLog LOG = new RateLimitedLog(1000, 5);
+ * ...
+ * LOG.log(() -> "Processing line: " + line);
+ * </pre>
+ */
+public final class RateLimitedLog
+{
+	private final long sampleEvery;
+	private final int perSecond;
+	private final AtomicLong calls = new AtomicLong();
+	private final LongAdder suppressed = new LongAdder();
+	private final AtomicLong window = new AtomicLong();
+	private final AtomicLong printedInWindow = new AtomicLong();
+
+	public RateLimitedLog(long sampleEvery, int perSecond)
+	{
+		this.sampleEvery = Math.max(1, sampleEvery);
+		this.perSecond = perSecond;
+	}
+
+	/**
+	 * True if the current call should print. Callers that need several statements to print can use
+	 * this instead of {@link #log}.
+	 */
+	public boolean shouldLog()
+	{
+		if (calls.getAndIncrement() % sampleEvery != 0)
+		{
+			suppressed.increment();
+			return false;
+		}
+
+		long second = System.nanoTime() / 1_000_000_000L;
+		long current = window.get();
+		if (current != second && window.compareAndSet(current, second))
+		{
+			printedInWindow.set(0);
+		}
+		if (printedInWindow.incrementAndGet() > perSecond)
+		{
+			suppressed.increment();
+			return false;
+		}
+		return true;
+	}
+
+	public void log(Supplier<String> message)
+	{
+		if (shouldLog())
+		{
+			System.out.println(message.get());
+		}
+	}
+
+	/**
+	 * Number of calls that did not print.
+	 */
+	public long suppressed()
+	{
+		return suppressed.sum();
+	}
+}
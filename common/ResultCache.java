@@ -0,0 +1,409 @@
+package common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk cache of solver answers keyed by the contents of the input file and a fingerprint of
+ * the solver that produced them. Running the same solver on the same bytes again (a duplicated
+ * input, a CI rerun) returns the stored answer without parsing the input.
+ *
+ * <p>Entries live in an append-only log which is read and scanned once on open. Lookups
+ * go through a lock-free {@link ConcurrentHashMap} front tier, then an index of the log. Every hit
+ * stamps the entry with a tick of a shared clock; when the log grows past its size bound the entries
+ * with the oldest stamps are dropped and the log is rewritten.
+ *
+ * <p>Inputs are identified by a 64-bit digest of their bytes (CRC32C and CRC32 side by side) plus
+ * their size.
+ */
+public class ResultCache
+{
+	private static final int RECORD_MAGIC = 0x52434C31; // "RCL1"
+	private static final int FRONT_TIER_LIMIT = 1024;
+	private static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+	// Shared classes that every solver reading its input through common depends on.
+	private static final Class<?>[] INPUT_CLASSES = {Line.class, LineSource.class, MappedInput.class, GzipInput.class};
+
+	private static ResultCache shared;
+
+	private final Path log;
+	private final long maxBytes;
+	private final ConcurrentHashMap<String, Entry> front = new ConcurrentHashMap<>();
+	private final HashMap<String, Entry> index = new HashMap<>();
+	private final AtomicLong clock = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private long logBytes;
+
+	/**
+	 * Computes an answer from an input file. Only called on a cache miss.
+	 */
+	public interface Solver
+	{
+		String solve(Path input) throws IOException;
+	}
+
+	/**
+	 * A cached answer and when it was last used, as a tick of {@link #clock}.
+	 */
+	private static final class Entry
+	{
+		final String key;
+		final String value;
+		volatile long lastUsed;
+
+		Entry(String key, String value, long lastUsed)
+		{
+			this.key = key;
+			this.value = value;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	private ResultCache(Path log, long maxBytes)
+	{
+		this.log = log;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Opens (or creates) the cache log at {@code log}, keeping it under roughly {@code maxBytes}.
+	 */
+	public static ResultCache open(Path log, long maxBytes) throws IOException
+	{
+		ResultCache cache = new ResultCache(log, maxBytes);
+		cache.load();
+		return cache;
+	}
+
+	/**
+	 * The process-wide cache, stored at {@code -Dclub.cache.file} (default
+	 * {@code .result-cache/results.log}).
+	 */
+	public static synchronized ResultCache shared() throws IOException
+	{
+		if (shared == null)
+		{
+			Path file = Path.of(System.getProperty("club.cache.file", ".result-cache/results.log"));
+			long max = Long.getLong("club.cache.maxBytes", DEFAULT_MAX_BYTES);
+			shared = open(file, max);
+		}
+
+		return shared;
+	}
+
+	/**
+	 * Returns the cached answer for {@code input} under {@code solverVersion}, or runs the solver
+	 * and records its answer.
+	 */
+	public String get(Path input, String solverVersion, Solver solver) throws IOException
+	{
+		String key = key(input, solverVersion);
+
+		Entry entry = front.get(key);
+		if (entry == null)
+		{
+			synchronized (this)
+			{
+				entry = index.get(key);
+			}
+			if (entry != null)
+			{
+				promote(entry);
+			}
+		}
+
+		if (entry != null)
+		{
+			// Read by compact() to evict cold entries first; no lock needed for that.
+			entry.lastUsed = clock.incrementAndGet();
+			hits.increment();
+			return entry.value;
+		}
+
+		misses.increment();
+		String value = solver.solve(input);
+		put(key, value);
+		return value;
+	}
+
+	/**
+	 * Fraction of {@link #get} calls answered from the cache, or 0 before the first call.
+	 */
+	public double hitRate()
+	{
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	public long hits()
+	{
+		return hits.sum();
+	}
+
+	public long misses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Fingerprint of a solver's compiled class, so that editing the solver invalidates its
+	 * cached answers without anyone having to bump a version number by hand. The shared input
+	 * classes ({@link Line}, {@link LineSource}, {@link MappedInput}, {@link GzipInput}) and any
+	 * other classes the answer depends on ({@code dependencies}) are folded in too, along with
+	 * their nested classes, so fixing one of those invalidates the answer as well.
+	 */
+	public static String fingerprint(Class<?> solver, Class<?>... dependencies)
+	{
+		CRC32C crc = new CRC32C();
+		if (!addClass(crc, solver))
+		{
+			return solver.getName();
+		}
+		for (Class<?> c : INPUT_CLASSES)
+		{
+			addClass(crc, c);
+		}
+		for (Class<?> c : dependencies)
+		{
+			addClass(crc, c);
+		}
+
+		return solver.getName() + "@" + Long.toHexString(crc.getValue());
+	}
+
+	/**
+	 * Adds the class file of {@code c} and its nested classes to {@code crc}; false if the class
+	 * file can't be read.
+	 */
+	private static boolean addClass(CRC32C crc, Class<?> c)
+	{
+		String file = c.getName().substring(c.getName().lastIndexOf('.') + 1) + ".class";
+		try (InputStream in = c.getResourceAsStream(file))
+		{
+			if (in == null)
+			{
+				return false;
+			}
+			crc.update(in.readAllBytes());
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+
+		for (Class<?> nested : c.getDeclaredClasses())
+		{
+			addClass(crc, nested);
+		}
+		return true;
+	}
+
+	/**
+	 * 64-bit digest of the file contents: CRC32C in the high half and CRC32 in the low half, both
+	 * streamed through a memory mapping in 64 MiB windows. The two use different polynomials, so
+	 * inputs that collide on one almost never collide on the other.
+	 */
+	public static long hash(Path input) throws IOException
+	{
+		CRC32C high = new CRC32C();
+		CRC32 low = new CRC32();
+		try (FileChannel ch = FileChannel.open(input, StandardOpenOption.READ))
+		{
+			long size = ch.size();
+			for (long pos = 0; pos < size; pos += 1 << 26)
+			{
+				long len = Math.min(1 << 26, size - pos);
+				ByteBuffer window = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+				high.update(window.duplicate());
+				low.update(window);
+			}
+		}
+
+		return high.getValue() << 32 | low.getValue();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("ResultCache[%s, hits=%d, misses=%d, hitRate=%.2f]", log, hits(), misses(), hitRate());
+	}
+
+	private static String key(Path input, String solverVersion) throws IOException
+	{
+		return solverVersion + ":" + String.format("%016x", hash(input)) + ":" + Files.size(input);
+	}
+
+	private void promote(Entry entry)
+	{
+		if (front.size() >= FRONT_TIER_LIMIT)
+		{
+			// Any entry will do; the disk index still holds it.
+			Iterator<String> it = front.keySet().iterator();
+			if (it.hasNext())
+			{
+				front.remove(it.next());
+			}
+		}
+
+		front.put(entry.key, entry);
+	}
+
+	private synchronized void put(String key, String value) throws IOException
+	{
+		if (index.containsKey(key))
+		{
+			// A concurrent miss already recorded it.
+			return;
+		}
+		Entry entry = new Entry(key, value, clock.incrementAndGet());
+		index.put(key, entry);
+		promote(entry);
+
+		ByteBuffer record = encode(key, value);
+		try (FileChannel ch = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+		{
+			while (record.hasRemaining())
+			{
+				ch.write(record);
+			}
+		}
+		logBytes += record.limit();
+
+		if (logBytes > maxBytes)
+		{
+			compact();
+		}
+	}
+
+	private synchronized void load() throws IOException
+	{
+		Path parent = log.toAbsolutePath().getParent();
+		if (parent != null)
+		{
+			Files.createDirectories(parent);
+		}
+		if (!Files.exists(log))
+		{
+			return;
+		}
+
+		// A plain read rather than a mapping: on Windows a file with a live mapping can't be
+		// truncated or replaced, which the code below and compact() may need to do.
+		long valid = 0;
+		ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(log));
+		while (buf.remaining() >= 8)
+		{
+			if (buf.getInt() != RECORD_MAGIC)
+			{
+				break;
+			}
+			String key = readString(buf);
+			String value = key == null ? null : readString(buf);
+			if (value == null)
+			{
+				break;
+			}
+			// Compaction writes entries oldest first, so log order is a fair starting recency.
+			index.put(key, new Entry(key, value, clock.incrementAndGet()));
+			valid = buf.position();
+		}
+
+		// Drop a torn record left by a crash so that the next append starts on a boundary.
+		if (valid < Files.size(log))
+		{
+			try (FileChannel ch = FileChannel.open(log, StandardOpenOption.WRITE))
+			{
+				ch.truncate(valid);
+			}
+		}
+		logBytes = valid;
+
+		if (logBytes > maxBytes)
+		{
+			compact();
+		}
+	}
+
+	private void compact() throws IOException
+	{
+		// Oldest stamp first. Hits racing with this may stamp an entry after the sort, which at worst
+		// evicts an entry that had just been used.
+		List<Entry> entries = new ArrayList<>(index.values());
+		entries.sort(Comparator.comparingLong(e -> e.lastUsed));
+		long live = 0;
+		for (Entry e : entries)
+		{
+			live += encode(e.key, e.value).limit();
+		}
+
+		// Evict least recently used entries until there is room to grow again.
+		Iterator<Entry> it = entries.iterator();
+		while (live > maxBytes * 3 / 4 && it.hasNext())
+		{
+			Entry e = it.next();
+			live -= encode(e.key, e.value).limit();
+			front.remove(e.key);
+			index.remove(e.key);
+			it.remove();
+		}
+
+		Path tmp = log.resolveSibling(log.getFileName() + ".tmp");
+		try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			for (Entry e : entries)
+			{
+				ByteBuffer record = encode(e.key, e.value);
+				while (record.hasRemaining())
+				{
+					ch.write(record);
+				}
+			}
+		}
+		Files.move(tmp, log, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		logBytes = live;
+	}
+
+	private static ByteBuffer encode(String key, String value)
+	{
+		byte[] k = key.getBytes(StandardCharsets.UTF_8);
+		byte[] v = value.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buf = ByteBuffer.allocate(12 + k.length + v.length);
+		buf.putInt(RECORD_MAGIC).putInt(k.length).put(k).putInt(v.length).put(v);
+		return buf.flip();
+	}
+
+	private static String readString(ByteBuffer buf)
+	{
+		if (buf.remaining() < 4)
+		{
+			return null;
+		}
+		int len = buf.getInt();
+		if (len < 0 || len > buf.remaining())
+		{
+			return null;
+		}
+		byte[] bytes = new byte[len];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}